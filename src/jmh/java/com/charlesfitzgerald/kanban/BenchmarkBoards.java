@@ -0,0 +1,41 @@
+package com.charlesfitzgerald.kanban;
+
+import java.util.SplittableRandom;
+
+// Builds deterministic boards for the benchmarks
+public class BenchmarkBoards {
+    public enum Distribution {
+        // priorities 1, 2 and 3 equally likely
+        UNIFORM,
+        // 80% priority 1, the rest split between 2 and 3
+        MOSTLY_LOW,
+        // 80% priority 3, the rest split between 1 and 2
+        MOSTLY_HIGH
+    }
+
+    private BenchmarkBoards() {}
+
+    // tasks are spread over the columns 50% TODO, 30% DOING, 20% DONE
+    public static Board build(int taskCount, Distribution distribution) {
+        SplittableRandom random = new SplittableRandom(42);
+        Board board = new Board();
+        for (int i = 0; i < taskCount; i++) {
+            long id = board.nextId();
+            Task t = new Task(id, "Task " + random.nextInt(taskCount) + " #" + id,
+                    "Description for task " + id + " with some extra words to make it realistic",
+                    priority(random, distribution));
+            int c = random.nextInt(10);
+            board.add(t, c < 5 ? Column.TODO : c < 8 ? Column.DOING : Column.DONE);
+        }
+        return board;
+    }
+
+    private static int priority(SplittableRandom random, Distribution distribution) {
+        int roll = random.nextInt(10);
+        return switch (distribution) {
+            case UNIFORM -> 1 + random.nextInt(3);
+            case MOSTLY_LOW -> roll < 8 ? 1 : roll == 8 ? 2 : 3;
+            case MOSTLY_HIGH -> roll < 8 ? 3 : roll == 8 ? 2 : 1;
+        };
+    }
+}
@@ -0,0 +1,60 @@
+package com.charlesfitzgerald.kanban;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class BoardOpsBenchmark {
+    @Param({"1000", "10000", "100000", "1000000"})
+    public int taskCount;
+
+    @Param({"UNIFORM", "MOSTLY_LOW", "MOSTLY_HIGH"})
+    public BenchmarkBoards.Distribution distribution;
+
+    private Board board;
+    private SplittableRandom random;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        board = BenchmarkBoards.build(taskCount, distribution);
+        random = new SplittableRandom(7);
+    }
+
+    @Benchmark
+    public Task find() {
+        return board.find(random.nextInt(taskCount));
+    }
+
+    @Benchmark
+    public Column findWithColumn() {
+        long id = random.nextInt(taskCount);
+        board.find(id);
+        return board.getCol(id);
+    }
+
+    @Benchmark
+    public boolean move() {
+        long id = random.nextInt(taskCount);
+        Column from = board.getCol(id);
+        Column to = from == Column.DONE ? Column.TODO : Column.values()[from.ordinal() + 1];
+        return board.move(id, to);
+    }
+
+    // remove a task and put it straight back so the board size stays constant
+    @Benchmark
+    public boolean removeAndReAdd() {
+        long id = random.nextInt(taskCount);
+        Task t = board.find(id);
+        Column col = board.getCol(id);
+        boolean removed = board.remove(id);
+        board.add(t, col);
+        return removed;
+    }
+}
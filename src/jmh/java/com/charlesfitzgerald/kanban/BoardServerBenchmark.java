@@ -0,0 +1,97 @@
+package com.charlesfitzgerald.kanban;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+// Load generator for the --serve mode: client threads send requests to a BoardServer on
+// localhost. The readMostly group mixes lookups and listing pages with a few moves and partial
+// edits. Any response outside 2xx fails the run, so errors can't pass for throughput.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class BoardServerBenchmark {
+    private static final String[] COLUMN_NAMES = {"todo", "doing", "done"};
+
+    @Param({"10000"})
+    public int taskCount;
+
+    private BoardServer server;
+    private HttpClient client;
+    private String base;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        server = new BoardServer(BenchmarkBoards.build(taskCount, BenchmarkBoards.Distribution.UNIFORM));
+        InetSocketAddress address = server.start(0);
+        base = "http://" + address.getAddress().getHostAddress() + ":" + address.getPort();
+        client = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).build();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        server.stop();
+        client.close();
+    }
+
+    private int send(HttpRequest request) throws Exception {
+        int status = client.send(request, HttpResponse.BodyHandlers.discarding()).statusCode();
+        if (status < 200 || status >= 300) {
+            throw new IllegalStateException(request.method() + " " + request.uri() + " answered " + status);
+        }
+        return status;
+    }
+
+    private static String randomColumn() {
+        return COLUMN_NAMES[ThreadLocalRandom.current().nextInt(COLUMN_NAMES.length)];
+    }
+
+    @Benchmark
+    @Group("readMostly")
+    @GroupThreads(6)
+    public int find() throws Exception {
+        long id = ThreadLocalRandom.current().nextInt(taskCount);
+        return send(HttpRequest.newBuilder(URI.create(base + "/tasks/" + id)).GET().build());
+    }
+
+    @Benchmark
+    @Group("readMostly")
+    @GroupThreads(1)
+    public int listPage() throws Exception {
+        String uri = base + "/tasks?col=" + randomColumn() + "&by=priority&limit=20";
+        return send(HttpRequest.newBuilder(URI.create(uri)).GET().build());
+    }
+
+    @Benchmark
+    @Group("readMostly")
+    @GroupThreads(1)
+    public int move() throws Exception {
+        long id = ThreadLocalRandom.current().nextInt(taskCount);
+        String body = "{\"column\":\"" + randomColumn() + "\"}";
+        return send(HttpRequest.newBuilder(URI.create(base + "/tasks/" + id + "/move"))
+                .POST(HttpRequest.BodyPublishers.ofString(body)).build());
+    }
+
+    // sets one field, so the server merges it with the task's current fields
+    @Benchmark
+    @Group("readMostly")
+    @GroupThreads(1)
+    public int edit() throws Exception {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        long id = random.nextInt(taskCount);
+        String body = random.nextBoolean()
+                ? "{\"priority\":" + (1 + random.nextInt(3)) + "}"
+                : "{\"title\":\"Edited " + random.nextInt(1_000_000) + "\"}";
+        return send(HttpRequest.newBuilder(URI.create(base + "/tasks/" + id))
+                .PUT(HttpRequest.BodyPublishers.ofString(body)).build());
+    }
+}
@@ -0,0 +1,64 @@
+package com.charlesfitzgerald.kanban;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+// Moving a third of a column (every priority-3 task) and clearing a whole column, with the
+// bulk operations and with one Board.move/remove per task. Every invocation starts from a
+// fresh board, so this runs single-shot.
+@State(Scope.Thread)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 20)
+@Fork(1)
+public class BulkOpsBenchmark {
+    @Param({"10000", "100000"})
+    public int taskCount;
+
+    private Board board;
+
+    @Setup(Level.Invocation)
+    public void setUp() {
+        board = new Board();
+        for (int i = 0; i < taskCount; i++) {
+            board.add(new Task(board.nextId(), "Task " + i, "Description " + i, 1 + i % 3), Column.TODO);
+        }
+    }
+
+    @Benchmark
+    public int moveIf() {
+        return board.moveIf(Column.TODO, t -> t.getPriority() == 3, Column.DOING).size();
+    }
+
+    @Benchmark
+    public int movePerTask() {
+        List<Long> ids = new ArrayList<>();
+        for (Task t : board.get(Column.TODO)) {
+            if (t.getPriority() == 3) {
+                ids.add(t.getId());
+            }
+        }
+        for (long id : ids) {
+            board.move(id, Column.DOING);
+        }
+        return ids.size();
+    }
+
+    @Benchmark
+    public int removeIf() {
+        return board.removeIf(Column.TODO, t -> true).size();
+    }
+
+    @Benchmark
+    public int removePerTask() {
+        List<Task> tasks = board.get(Column.TODO);
+        for (Task t : tasks) {
+            board.remove(t.getId());
+        }
+        return tasks.size();
+    }
+}
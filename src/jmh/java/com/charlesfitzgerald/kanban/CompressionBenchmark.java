@@ -0,0 +1,85 @@
+package com.charlesfitzgerald.kanban;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Comparator;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+// What gzip snapshots trade: saving and loading a board as plain JSON and as gzip at three
+// levels and two buffer sizes. Saves include the fsync, as in the REPL. The `bytes` counter
+// is the snapshot's size on disk, so each row shows what its time buys.
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class CompressionBenchmark {
+    @Param({"100000"})
+    public int taskCount;
+
+    // "json" is the uncompressed baseline; numbers are gzip levels
+    @Param({"json", "1", "6", "9"})
+    public String level;
+
+    // ignored by json
+    @Param({"8", "64"})
+    public int bufferKb;
+
+    private Path dir;
+    private Board board;
+
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    public static class Size {
+        public long bytes;
+    }
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        dir = Files.createTempDirectory("kanban-compression");
+        board = BenchmarkBoards.build(taskCount, BenchmarkBoards.Distribution.UNIFORM);
+        configure(board);
+        board.save();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        try (Stream<Path> files = Files.walk(dir)) {
+            for (Path p : files.sorted(Comparator.reverseOrder()).toList()) {
+                Files.delete(p);
+            }
+        }
+    }
+
+    private void configure(Board b) {
+        b.setSaveDir(dir.toString());
+        b.setBoardName("bench");
+        if (level.equals("json")) {
+            b.setSnapshotFormat(SnapshotFormat.JSON);
+        } else {
+            b.setSnapshotFormat(SnapshotFormat.GZIP);
+            b.setCompression(Integer.parseInt(level), bufferKb << 10);
+        }
+    }
+
+    @Benchmark
+    public boolean save(Size size) throws IOException {
+        boolean ok = board.save();
+        size.bytes = Files.size(Paths.get(board.getSaveFilePath()));
+        return ok;
+    }
+
+    @Benchmark
+    public Board load() {
+        Board loaded = new Board();
+        configure(loaded);
+        loaded.load();
+        return loaded;
+    }
+}
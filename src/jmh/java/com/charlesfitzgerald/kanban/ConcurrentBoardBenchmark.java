@@ -0,0 +1,60 @@
+package com.charlesfitzgerald.kanban;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+// Contended throughput of ConcurrentBoard: adder and mover threads hammer one shared board.
+// Adders remove what they add so the board size stays constant during the run.
+@State(Scope.Group)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ConcurrentBoardBenchmark {
+    @Param({"1000", "100000"})
+    public int taskCount;
+
+    private ConcurrentBoard board;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        board = ConcurrentBoard.copyOf(BenchmarkBoards.build(taskCount, BenchmarkBoards.Distribution.UNIFORM));
+    }
+
+    private static Column randomColumn() {
+        return Column.values()[ThreadLocalRandom.current().nextInt(3)];
+    }
+
+    @Benchmark
+    @Group("addMove")
+    @GroupThreads(2)
+    public boolean add() {
+        long id = board.nextId();
+        board.add(new Task(id, "bench", "bench", 2), randomColumn());
+        return board.remove(id);
+    }
+
+    @Benchmark
+    @Group("addMove")
+    @GroupThreads(2)
+    public boolean move() {
+        return board.move(ThreadLocalRandom.current().nextInt(taskCount), randomColumn());
+    }
+
+    @Benchmark
+    @Group("readMostly")
+    @GroupThreads(6)
+    public Task find() {
+        return board.find(ThreadLocalRandom.current().nextInt(taskCount));
+    }
+
+    @Benchmark
+    @Group("readMostly")
+    @GroupThreads(2)
+    public boolean moveWhileReading() {
+        return board.move(ThreadLocalRandom.current().nextInt(taskCount), randomColumn());
+    }
+}
@@ -0,0 +1,209 @@
+package com.charlesfitzgerald.kanban;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Queue;
+import java.util.Set;
+import java.util.SplittableRandom;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+
+// Stress check for ConcurrentBoard: writer threads add, move, edit and remove tasks on one
+// shared board while reader threads look them up and list columns, then the board is checked
+// against what the writers did. Exits with status 1 if anything is wrong.
+// Run with: gradle concurrencyCheck [-PstressSeconds=<seconds>]; gradle check runs it too.
+//
+// Moves and removes pick any id, so threads race on the same tasks. A successful remove must
+// happen once per id, which makes the final contents exact: the initial tasks plus every add,
+// minus every successful remove.
+//
+// An edit writes one number into the title, the description and the priority, so a reader
+// that sees a task with parts of two different edits has caught an edit half-applied. Edits
+// must also never change a task object someone already holds: readers keep the last task they
+// found and check it still reads the same. Half of all edits and lookups go to the first
+// HOT_TASKS ids so they keep meeting.
+public class ConcurrentBoardStressCheck {
+    private static final int INITIAL_TASKS = 10_000;
+    private static final int READERS = 2;
+    private static final int HOT_TASKS = 256;
+    private static final String EDITED = "Edited ";
+
+    public static void main(String[] args) throws InterruptedException {
+        double seconds = args.length > 0 ? Double.parseDouble(args[0]) : 3;
+        int writers = Math.max(4, Runtime.getRuntime().availableProcessors());
+
+        ConcurrentBoard board = new ConcurrentBoard();
+        for (int i = 0; i < INITIAL_TASKS; i++) {
+            long id = board.nextId();
+            board.add(new Task(id, "Task " + id, "Initial task " + id, 1 + i % 3), Column.values()[i % 3]);
+        }
+
+        Set<Long> added = ConcurrentHashMap.newKeySet();
+        Set<Long> removed = ConcurrentHashMap.newKeySet();
+        Queue<String> problems = new ConcurrentLinkedQueue<>();
+        long[] ops = new long[writers + READERS];
+        long deadline = System.nanoTime() + (long) (seconds * 1e9);
+        CountDownLatch start = new CountDownLatch(1);
+
+        Thread[] threads = new Thread[writers + READERS];
+        for (int w = 0; w < writers; w++) {
+            int n = w;
+            threads[n] = new Thread(() -> {
+                SplittableRandom random = new SplittableRandom(n);
+                await(start);
+                while (System.nanoTime() < deadline) {
+                    int op = random.nextInt(10);
+                    if (op < 4) {
+                        long id = board.nextId();
+                        board.add(new Task(id, "Added " + id, "By writer " + n, 1 + random.nextInt(3)), randomColumn(random));
+                        added.add(id);
+                    } else if (op < 6) {
+                        board.move(random.nextLong(board.getNextId()), randomColumn(random));
+                    } else if (op < 8) {
+                        int edit = random.nextInt(1_000_000);
+                        board.edit(randomId(random, board), EDITED + edit, EDITED + edit, 1 + edit % 3);
+                    } else {
+                        long id = random.nextLong(board.getNextId());
+                        if (board.remove(id) && !removed.add(id)) {
+                            problems.add("Task #" + id + " was removed twice");
+                        }
+                    }
+                    ops[n]++;
+                }
+            }, "writer-" + n);
+        }
+        for (int r = 0; r < READERS; r++) {
+            int n = writers + r;
+            threads[n] = new Thread(() -> {
+                SplittableRandom random = new SplittableRandom(n);
+                Task held = null;
+                String heldTitle = null;
+                await(start);
+                while (System.nanoTime() < deadline) {
+                    if (held != null && !held.getTitle().equals(heldTitle)) {
+                        problems.add("Task #" + held.getId() + " changed from '" + heldTitle + "' to '"
+                                + held.getTitle() + "' after find() returned it");
+                    }
+                    long id = randomId(random, board);
+                    Task t = board.find(id);
+                    if (t != null && t.getId() != id) {
+                        problems.add("find(" + id + ") returned task #" + t.getId());
+                    }
+                    if (t != null) {
+                        checkEdit(t, problems);
+                        held = t;
+                        heldTitle = t.getTitle();
+                    }
+                    if (random.nextInt(1000) == 0) {
+                        checkListing(board.get(randomColumn(random)), problems);
+                    }
+                    ops[n]++;
+                }
+            }, "reader-" + r);
+        }
+
+        for (Thread t : threads) {
+            t.setUncaughtExceptionHandler((thread, e) -> problems.add(thread.getName() + " threw " + e));
+            t.start();
+        }
+        start.countDown();
+        for (Thread t : threads) {
+            t.join();
+        }
+
+        checkFinal(board, added, removed, problems);
+        long total = 0;
+        for (long n : ops) {
+            total += n;
+        }
+        System.out.printf("%,d operations on %d writer and %d reader threads in %.1f s: %,d added, %,d removed, %,d left%n",
+                total, writers, READERS, seconds, added.size(), removed.size(),
+                board.size(Column.TODO) + board.size(Column.DOING) + board.size(Column.DONE));
+        if (!problems.isEmpty()) {
+            problems.stream().limit(20).forEach(p -> System.out.println("FAILED: " + p));
+            System.exit(1);
+        }
+        System.out.println("ConcurrentBoard is consistent");
+    }
+
+    // a column copy taken while writers are busy must still be a plain list of distinct tasks
+    private static void checkListing(List<Task> tasks, Queue<String> problems) {
+        Set<Long> ids = new HashSet<>();
+        for (Task t : tasks) {
+            if (t == null) {
+                problems.add("get() returned a null task");
+            } else if (!ids.add(t.getId())) {
+                problems.add("get() listed task #" + t.getId() + " twice");
+            } else {
+                checkEdit(t, problems);
+            }
+        }
+    }
+
+    private static void checkEdit(Task t, Queue<String> problems) {
+        String title = t.getTitle();
+        String description = t.getDescription();
+        int priority = t.getPriority();
+        if (title.startsWith(EDITED)) {
+            int edit = Integer.parseInt(title.substring(EDITED.length()));
+            if (!title.equals(description) || priority != 1 + edit % 3) {
+                problems.add("Task #" + t.getId() + " shows a half-applied edit: '" + title + "', '"
+                        + description + "', priority " + priority);
+            }
+        }
+    }
+
+    private static void checkFinal(ConcurrentBoard board, Set<Long> added, Set<Long> removed, Queue<String> problems) {
+        try {
+            board.verify();
+        } catch (IllegalStateException e) {
+            problems.add(e.getMessage());
+        }
+
+        int expected = INITIAL_TASKS + added.size() - removed.size();
+        int sizes = 0;
+        Set<Long> listed = new HashSet<>();
+        for (Column col : Column.values()) {
+            List<Task> tasks = board.get(col);
+            sizes += board.size(col);
+            if (tasks.size() != board.size(col)) {
+                problems.add(col + " lists " + tasks.size() + " tasks but its size is " + board.size(col));
+            }
+            for (Task t : tasks) {
+                if (!listed.add(t.getId())) {
+                    problems.add("Task #" + t.getId() + " is listed twice");
+                }
+                if (board.getCol(t.getId()) != col || board.find(t.getId()) != t) {
+                    problems.add("Task #" + t.getId() + " is listed in " + col + " but found in " + board.getCol(t.getId()));
+                }
+            }
+        }
+        if (sizes != expected || listed.size() != expected) {
+            problems.add("Expected " + expected + " tasks, sizes add up to " + sizes + " and " + listed.size() + " are listed");
+        }
+
+        for (long id = 0; id < board.getNextId(); id++) {
+            boolean shouldExist = (id < INITIAL_TASKS || added.contains(id)) && !removed.contains(id);
+            if (shouldExist != listed.contains(id)) {
+                problems.add("Task #" + id + (shouldExist ? " is missing" : " should have been removed"));
+            }
+        }
+    }
+
+    private static long randomId(SplittableRandom random, ConcurrentBoard board) {
+        return random.nextBoolean() ? random.nextLong(HOT_TASKS) : random.nextLong(board.getNextId());
+    }
+
+    private static Column randomColumn(SplittableRandom random) {
+        return Column.values()[random.nextInt(3)];
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
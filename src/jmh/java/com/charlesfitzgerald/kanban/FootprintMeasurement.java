@@ -0,0 +1,61 @@
+package com.charlesfitzgerald.kanban;
+
+// Heap used per task by the same generated Board before and after it is switched to columnar
+// mode (Board.setColumnar). Run with: gradle footprint [-PfootprintTasks=<count>]
+//
+// Each board is measured as the growth in used heap after a forced GC, with only that board
+// reachable, so the numbers include indexes, lists and text but not the JVM's own baseline.
+// Both layouts store ASCII text at one byte per character, so the text is also subtracted to
+// show the per-task overhead on its own.
+public class FootprintMeasurement {
+    public static void main(String[] args) {
+        int taskCount = args.length > 0 ? Integer.parseInt(args[0]) : 1_000_000;
+
+        long baseline = usedHeap();
+        Board board = BenchmarkBoards.build(taskCount, BenchmarkBoards.Distribution.UNIFORM);
+        long boardBytes = usedHeap() - baseline;
+        long textBytes = 0;
+        for (Column col : Column.values()) {
+            for (Task t : board.get(col)) {
+                textBytes += t.getTitle().length() + t.getDescription().length();
+            }
+        }
+
+        board.setColumnar(true);
+        long columnarBytes = usedHeap() - baseline;
+
+        System.out.printf("%,d tasks, %,d bytes of text%n", taskCount, textBytes);
+        System.out.printf("%-14s %14s %12s %14s%n", "", "total", "bytes/task", "without text");
+        print("objects", boardBytes, textBytes, taskCount);
+        print("columnar", columnarBytes, textBytes, taskCount);
+        System.out.printf("Columnar mode uses %.0f%% of the heap and %.0f%% of the per-task overhead%n",
+                100.0 * columnarBytes / boardBytes, 100.0 * (columnarBytes - textBytes) / (boardBytes - textBytes));
+
+        // keep the board reachable until it has been measured
+        if (board.get(Column.TODO).size() < 0) {
+            System.out.println(board);
+        }
+    }
+
+    private static void print(String name, long bytes, long textBytes, int taskCount) {
+        System.out.printf("%-14s %,14d %12.1f %14.1f%n", name, bytes, (double) bytes / taskCount,
+                (double) (bytes - textBytes) / taskCount);
+    }
+
+    private static long usedHeap() {
+        Runtime runtime = Runtime.getRuntime();
+        long used = Long.MAX_VALUE;
+        // a few rounds so concurrent collectors settle
+        for (int i = 0; i < 4; i++) {
+            System.gc();
+            try {
+                Thread.sleep(50);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            }
+            used = Math.min(used, runtime.totalMemory() - runtime.freeMemory());
+        }
+        return used;
+    }
+}
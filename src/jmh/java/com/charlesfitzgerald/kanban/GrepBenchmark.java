@@ -0,0 +1,64 @@
+package com.charlesfitzgerald.kanban;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+// How Board.grep scales with cores: the same regex over titles and descriptions on pools of 1
+// to 8 workers, against a single-threaded loop that matches every task and sorts the matches.
+// Compare the parallelism rows against `sequential` to read off the speed-up.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class GrepBenchmark {
+    @Param({"100000", "1000000"})
+    public int taskCount;
+
+    @Param({"1", "2", "4", "8"})
+    public int parallelism;
+
+    private Board board;
+    private ForkJoinPool pool;
+    private final Pattern pattern = Pattern.compile("(?i)task \\d*7\\b|realistic$");
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        board = BenchmarkBoards.build(taskCount, BenchmarkBoards.Distribution.UNIFORM);
+        pool = new ForkJoinPool(parallelism);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        pool.shutdown();
+    }
+
+    @Benchmark
+    public List<Task> parallel() {
+        return board.grep(pattern, true, true, pool);
+    }
+
+    // ignores the pool, so every parallelism row measures the same loop
+    @Benchmark
+    public List<Task> sequential() {
+        Matcher m = pattern.matcher("");
+        List<Task> matches = new ArrayList<>();
+        for (Column col : Column.values()) {
+            for (Task t : board.get(col)) {
+                if (m.reset(t.getTitle()).find() || m.reset(t.getDescription()).find()) {
+                    matches.add(t);
+                }
+            }
+        }
+        matches.sort(Comparator.comparingLong(Task::getId));
+        return matches;
+    }
+}
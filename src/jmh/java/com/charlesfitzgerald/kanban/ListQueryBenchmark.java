@@ -0,0 +1,75 @@
+package com.charlesfitzgerald.kanban;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+// `list todo --top 20` and deep paging: bounded-heap top-k and cursor seeks against sorting
+// the whole column and skipping with an offset.
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ListQueryBenchmark {
+    private static final int PAGE = 20;
+
+    @Param({"10000", "1000000"})
+    public int taskCount;
+
+    // a board whose sorted views are never built, so top() has to use the heap
+    private Board heapBoard;
+    // a board with sorted views, for cursor and offset paging
+    private Board viewBoard;
+    private long deepCursor;
+    private int deepOffset;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        heapBoard = BenchmarkBoards.build(taskCount, BenchmarkBoards.Distribution.UNIFORM);
+        viewBoard = BenchmarkBoards.build(taskCount, BenchmarkBoards.Distribution.UNIFORM);
+
+        // cursor and offset of a page 90% of the way down the sorted column
+        deepOffset = viewBoard.get(Column.TODO).size() * 9 / 10;
+        Iterator<Task> it = viewBoard.sorted(Column.TODO, SortKey.PRIORITY, true).iterator();
+        for (int i = 0; i < deepOffset; i++) {
+            deepCursor = it.next().getId();
+        }
+    }
+
+    @Benchmark
+    public List<Task> topBySortingColumn() {
+        List<Task> copy = new ArrayList<>(heapBoard.get(Column.TODO));
+        copy.sort(SortKey.PRIORITY.comparator(true));
+        return copy.subList(0, PAGE);
+    }
+
+    @Benchmark
+    public List<Task> topWithBoundedHeap() {
+        return heapBoard.top(Column.TODO, SortKey.PRIORITY, true, PAGE);
+    }
+
+    @Benchmark
+    public void deepPageWithOffset(Blackhole bh) {
+        Iterator<Task> it = viewBoard.sorted(Column.TODO, SortKey.PRIORITY, true).iterator();
+        for (int i = 0; i < deepOffset + PAGE && it.hasNext(); i++) {
+            Task t = it.next();
+            if (i >= deepOffset) {
+                bh.consume(t);
+            }
+        }
+    }
+
+    @Benchmark
+    public void deepPageAfterCursor(Blackhole bh) {
+        Iterator<Task> it = viewBoard.after(Column.TODO, SortKey.PRIORITY, true, deepCursor).iterator();
+        for (int i = 0; i < PAGE && it.hasNext(); i++) {
+            bh.consume(it.next());
+        }
+    }
+}
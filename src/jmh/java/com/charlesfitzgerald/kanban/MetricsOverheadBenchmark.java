@@ -0,0 +1,57 @@
+package com.charlesfitzgerald.kanban;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+// Cost of the latency instrumentation on the cheapest instrumented operations, with stats
+// off (the default) and on. Each parameter combination runs in its own fork, so the static
+// Metrics switch set in setUp only affects that fork.
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MetricsOverheadBenchmark {
+    @Param({"false", "true"})
+    public boolean stats;
+
+    private Board board;
+    private long[] ids;
+    private int next;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        if (stats) {
+            Metrics.enable();
+        }
+        board = BenchmarkBoards.build(100_000, BenchmarkBoards.Distribution.UNIFORM);
+        ids = new long[1024];
+        for (int i = 0; i < ids.length; i++) {
+            ids[i] = (long) i * 97 % 100_000;
+        }
+    }
+
+    @Benchmark
+    public Task find() {
+        next = (next + 1) & (ids.length - 1);
+        return board.find(ids[next]);
+    }
+
+    @Benchmark
+    public boolean moveRoundTrip() {
+        next = (next + 1) & (ids.length - 1);
+        long id = ids[next];
+        Column from = board.getCol(id);
+        board.move(id, Column.DONE);
+        return board.move(id, from);
+    }
+
+    @Benchmark
+    public long histogramRecord() {
+        long start = Metrics.start();
+        Metrics.latency("benchmark.record").recordSince(start);
+        return start;
+    }
+}
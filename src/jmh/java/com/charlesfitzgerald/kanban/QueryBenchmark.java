@@ -0,0 +1,68 @@
+package com.charlesfitzgerald.kanban;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+// Triage queries through Board.query, which picks an index, against filtering and sorting
+// every task with the same compiled predicate and comparator.
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class QueryBenchmark {
+    @Param({"10000", "100000"})
+    public int taskCount;
+
+    @Param({
+            "col=todo AND prio>=2 AND title~\"task\" ORDER BY prio DESC LIMIT 20",
+            "text~\"realistic\" AND id<1000",
+            "prio=3 AND col=done ORDER BY title LIMIT 20",
+            "col=doing LIMIT 50"
+    })
+    public String text;
+
+    private Board board;
+    private TaskQuery query;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        board = BenchmarkBoards.build(taskCount, BenchmarkBoards.Distribution.MOSTLY_LOW);
+        query = TaskQuery.parse(text);
+        // query only uses indexes something else has built, as a search and a sorted listing do
+        board.search("task");
+        board.sorted(Column.TODO, SortKey.PRIORITY, false);
+    }
+
+    @Benchmark
+    public TaskQuery.Result planned() {
+        return board.query(query);
+    }
+
+    @Benchmark
+    public List<Task> scan() {
+        List<Task> all = new ArrayList<>();
+        for (Column col : Column.values()) {
+            if (query.getColumns().contains(col)) {
+                for (Task t : board.get(col)) {
+                    if (query.getFilter().test(t)) {
+                        all.add(t);
+                    }
+                }
+            }
+        }
+        if (query.getOrder() != null) {
+            all.sort(query.getOrder());
+        }
+        return query.getLimit() == TaskQuery.NO_LIMIT ? all : all.subList(0, Math.min(query.getLimit(), all.size()));
+    }
+
+    @Benchmark
+    public TaskQuery parse() {
+        return TaskQuery.parse(text);
+    }
+}
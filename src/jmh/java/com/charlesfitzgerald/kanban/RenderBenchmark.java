@@ -0,0 +1,57 @@
+package com.charlesfitzgerald.kanban;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class RenderBenchmark {
+    @Param({"1000", "10000", "100000", "1000000"})
+    public int taskCount;
+
+    @Param({"UNIFORM", "MOSTLY_HIGH"})
+    public BenchmarkBoards.Distribution distribution;
+
+    @Param({"ID", "PRIORITY"})
+    public SortKey key;
+
+    private Board board;
+    private PrintStream originalOut;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        board = BenchmarkBoards.build(taskCount, distribution);
+        // render into a sink that discards everything so the terminal isn't what gets measured;
+        // autoflush stays on to match System.out
+        originalOut = System.out;
+        System.setOut(new PrintStream(OutputStream.nullOutputStream(), true));
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        System.setOut(originalOut);
+    }
+
+    @Benchmark
+    public void printAllSorted() {
+        TaskViews.printAllSorted(board, key.comparator());
+    }
+
+    // same listing served from the board's maintained sorted views
+    @Benchmark
+    public void printAllSortedView() {
+        TaskViews.printAllSorted(board, key, false);
+    }
+
+    @Benchmark
+    public void printAll() {
+        TaskViews.printAll(board);
+    }
+}
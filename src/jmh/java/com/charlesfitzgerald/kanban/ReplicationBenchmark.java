@@ -0,0 +1,57 @@
+package com.charlesfitzgerald.kanban;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+// What shipping changes to a follower adds to each board change on the leader's thread:
+// moving a task out and back with no replication, and with one follower connected and
+// applying everything. Compaction runs as part of the measurement.
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ReplicationBenchmark {
+    @Param({"false", "true"})
+    public boolean replicated;
+
+    private Board board;
+    private ReplicationLeader leader;
+    private ReplicationFollower follower;
+    private long[] ids;
+    private int next;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        board = BenchmarkBoards.build(100_000, BenchmarkBoards.Distribution.UNIFORM);
+        ids = new long[1024];
+        for (int i = 0; i < ids.length; i++) {
+            ids[i] = (long) i * 97 % 100_000;
+        }
+        if (replicated) {
+            leader = new ReplicationLeader();
+            follower = new ReplicationFollower(leader.start(board, 0).getPort());
+            follower.start();
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        if (replicated) {
+            follower.stop();
+            leader.stop();
+        }
+    }
+
+    @Benchmark
+    public boolean moveRoundTrip() {
+        next = (next + 1) & (ids.length - 1);
+        long id = ids[next];
+        Column from = board.getCol(id);
+        board.move(id, Column.DONE);
+        return board.move(id, from);
+    }
+}
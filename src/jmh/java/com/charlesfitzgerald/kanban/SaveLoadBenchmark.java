@@ -0,0 +1,67 @@
+package com.charlesfitzgerald.kanban;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SaveLoadBenchmark {
+    @Param({"1000", "10000", "100000", "1000000"})
+    public int taskCount;
+
+    @Param({"JSON", "BINARY"})
+    public SnapshotFormat format;
+
+    private Path dir;
+    private Board board;
+    private Board loaded;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        dir = Files.createTempDirectory("kanban-jmh");
+        board = BenchmarkBoards.build(taskCount, BenchmarkBoards.Distribution.UNIFORM);
+        board.setSaveDir(dir.toString());
+        board.setBoardName("bench");
+        board.setSnapshotFormat(format);
+        board.save();
+
+        loaded = new Board();
+        loaded.setSaveDir(dir.toString());
+        loaded.setBoardName("bench");
+        loaded.setSnapshotFormat(format);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        try (Stream<Path> files = Files.walk(dir)) {
+            for (Path p : files.sorted(Comparator.reverseOrder()).toList()) {
+                Files.delete(p);
+            }
+        }
+    }
+
+    @Benchmark
+    public boolean save() {
+        return board.save();
+    }
+
+    @Benchmark
+    public boolean load() {
+        return loaded.load();
+    }
+
+    @Benchmark
+    public boolean roundTrip() {
+        return board.save() && loaded.load();
+    }
+}
@@ -0,0 +1,60 @@
+package com.charlesfitzgerald.kanban;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+// Costs of the persistent columns: capturing the board for a save (what the REPL thread
+// pays before a background write), one command's worth of change with and without undo
+// history, and undoing plus redoing it.
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SnapshotBenchmark {
+    @Param({"10000", "100000"})
+    public int taskCount;
+
+    @Param({"0", "100"})
+    public int undoLimit;
+
+    private Board board;
+    private long[] ids;
+    private int next;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        board = BenchmarkBoards.build(taskCount, BenchmarkBoards.Distribution.UNIFORM);
+        board.setUndoLimit(undoLimit);
+        ids = new long[1024];
+        for (int i = 0; i < ids.length; i++) {
+            ids[i] = (long) i * 97 % taskCount;
+        }
+    }
+
+    @Benchmark
+    public SaveData capture() {
+        return board.toSaveData();
+    }
+
+    // a move command, as the REPL runs it
+    @Benchmark
+    public boolean moveCommand() {
+        next = (next + 1) & (ids.length - 1);
+        long id = ids[next];
+        board.checkpoint();
+        Column from = board.getCol(id);
+        return board.move(id, from == Column.DONE ? Column.TODO : Column.DONE);
+    }
+
+    @Benchmark
+    public boolean undoRedo() {
+        if (undoLimit == 0) {
+            return false;
+        }
+        moveCommand();
+        return board.undo() && board.redo();
+    }
+}
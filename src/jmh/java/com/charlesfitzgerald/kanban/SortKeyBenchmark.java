@@ -0,0 +1,41 @@
+package com.charlesfitzgerald.kanban;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SortKeyBenchmark {
+    @Param({"1000", "10000", "100000", "1000000"})
+    public int taskCount;
+
+    @Param({"UNIFORM", "MOSTLY_LOW", "MOSTLY_HIGH"})
+    public BenchmarkBoards.Distribution distribution;
+
+    @Param({"ID", "TITLE", "PRIORITY"})
+    public SortKey key;
+
+    @Param({"false", "true"})
+    public boolean descending;
+
+    private List<Task> tasks;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        tasks = BenchmarkBoards.build(taskCount, distribution).get(Column.TODO);
+    }
+
+    @Benchmark
+    public List<Task> sortColumn() {
+        List<Task> copy = new ArrayList<>(tasks);
+        copy.sort(key.comparator(descending));
+        return copy;
+    }
+}
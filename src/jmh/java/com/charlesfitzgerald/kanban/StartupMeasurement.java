@@ -0,0 +1,104 @@
+package com.charlesfitzgerald.kanban;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+// Cold start of the CLI in fresh JVMs, with and without the AppCDS archive.
+// Run with: gradle startupTime [-PstartupTasks=<count>] [-PstartupRuns=<runs>]
+//
+// Each run starts Main in a directory holding a saved board of the given size and reports
+// two times from process launch: until the first menu prompt is printed, and until the
+// first command that needs the loaded board ('boards', typed straight away) has answered.
+// Medians over the runs are printed.
+public class StartupMeasurement {
+    // first line of the 'boards' listing
+    private static final String READY_MARKER = "Boards in ";
+
+    public static void main(String[] args) throws IOException, InterruptedException {
+        String classpath = args[0];
+        String archive = args[1];
+        int taskCount = args.length > 2 ? Integer.parseInt(args[2]) : 10_000;
+        int runs = args.length > 3 ? Integer.parseInt(args[3]) : 10;
+
+        Path dir = Files.createTempDirectory("kanban-startup");
+        Board board = BenchmarkBoards.build(taskCount, BenchmarkBoards.Distribution.UNIFORM);
+        board.setSaveDir(dir.resolve("boards").toString());
+        if (!board.save()) {
+            throw new IOException("Could not save the test board in " + dir);
+        }
+
+        System.out.printf("%,d tasks, median of %d runs%n", taskCount, runs);
+        System.out.printf("%-24s %14s %14s%n", "", "first prompt", "board ready");
+        measure("no CDS (-Xshare:off)", dir, runs, List.of("-Xshare:off", "-cp", classpath));
+        measure("JDK CDS archive", dir, runs, List.of("-cp", classpath));
+        if (Files.exists(Paths.get(archive))) {
+            measure("AppCDS archive", dir, runs, List.of("-XX:SharedArchiveFile=" + archive, "-cp", classpath));
+        } else {
+            System.out.println("No AppCDS archive at " + archive + "; run gradle cdsArchive first");
+        }
+    }
+
+    private static void measure(String name, Path dir, int runs, List<String> jvmArgs)
+            throws IOException, InterruptedException {
+        long[] prompt = new long[runs];
+        long[] ready = new long[runs];
+        for (int i = 0; i < runs; i++) {
+            long[] times = run(dir, jvmArgs);
+            prompt[i] = times[0];
+            ready[i] = times[1];
+        }
+        System.out.printf("%-24s %11.1f ms %11.1f ms%n", name, median(prompt) / 1e6, median(ready) / 1e6);
+    }
+
+    // nanoseconds from launch to the first prompt and to the answer to 'boards'
+    private static long[] run(Path dir, List<String> jvmArgs) throws IOException, InterruptedException {
+        List<String> command = new ArrayList<>();
+        command.add(Paths.get(System.getProperty("java.home"), "bin", "java").toString());
+        command.addAll(jvmArgs);
+        command.add("com.charlesfitzgerald.kanban.Main");
+
+        long start = System.nanoTime();
+        Process process = new ProcessBuilder(command).directory(dir.toFile()).redirectErrorStream(true).start();
+        long prompt = -1;
+        long ready = -1;
+        try (OutputStream stdin = process.getOutputStream(); InputStream stdout = process.getInputStream()) {
+            stdin.write("boards\n".getBytes(StandardCharsets.UTF_8));
+            stdin.flush();
+
+            StringBuilder line = new StringBuilder();
+            int c;
+            while ((prompt < 0 || ready < 0) && (c = stdout.read()) != -1) {
+                line.append((char) c);
+                if (prompt < 0 && line.toString().endsWith("> ")) {
+                    prompt = System.nanoTime() - start;
+                }
+                if (c == '\n') {
+                    if (ready < 0 && line.indexOf(READY_MARKER) >= 0) {
+                        ready = System.nanoTime() - start;
+                    }
+                    line.setLength(0);
+                }
+            }
+        } finally {
+            process.destroyForcibly().waitFor();
+        }
+        if (prompt < 0 || ready < 0) {
+            throw new IOException("The CLI exited before showing a prompt and answering 'boards'");
+        }
+        return new long[] {prompt, ready};
+    }
+
+    private static long median(long[] values) {
+        long[] sorted = values.clone();
+        Arrays.sort(sorted);
+        return sorted[sorted.length / 2];
+    }
+}
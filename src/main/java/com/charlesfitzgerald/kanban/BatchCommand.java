@@ -0,0 +1,177 @@
+package com.charlesfitzgerald.kanban;
+
+import java.util.ArrayList;
+import java.util.List;
+
+// One board operation parsed from a single line of text, with no prompting.
+//
+//   add "<title>" "<description>" <priority> [<col>]
+//   edit <id> "<title>" "<description>" <priority>
+//   move <id> <col>
+//   del <id>
+//
+// Arguments are separated by whitespace. Double quotes group words into one argument, and
+// \" or \\ inside quotes stand for a literal quote or backslash.
+public class BatchCommand {
+    public enum Op { ADD, EDIT, MOVE, DEL }
+
+    private final Op op;
+    private final long id;
+    private final String title;
+    private final String description;
+    private final int priority;
+    private final Column column;
+
+    private BatchCommand(Op op, long id, String title, String description, int priority, Column column) {
+        this.op = op;
+        this.id = id;
+        this.title = title;
+        this.description = description;
+        this.priority = priority;
+        this.column = column;
+    }
+
+    // Parse one command line. Blank lines and lines starting with '#' give null.
+    // Throws IllegalArgumentException describing what is wrong with the line.
+    public static BatchCommand parse(String line) {
+        List<String> args = tokenize(line);
+        if (args.isEmpty() || args.get(0).startsWith("#")) {
+            return null;
+        }
+
+        String name = args.get(0).toLowerCase();
+        switch (name) {
+            case "add" -> {
+                expectArgs(args, 4, 5, "add \"<title>\" \"<description>\" <priority> [<col>]");
+                Column col = args.size() == 5 ? column(args.get(4)) : Column.TODO;
+                return new BatchCommand(Op.ADD, -1, args.get(1), args.get(2), priority(args.get(3)), col);
+            }
+            case "edit" -> {
+                expectArgs(args, 5, 5, "edit <id> \"<title>\" \"<description>\" <priority>");
+                return new BatchCommand(Op.EDIT, id(args.get(1)), args.get(2), args.get(3), priority(args.get(4)), null);
+            }
+            case "move" -> {
+                expectArgs(args, 3, 3, "move <id> <col>");
+                return new BatchCommand(Op.MOVE, id(args.get(1)), null, null, 0, column(args.get(2)));
+            }
+            case "del" -> {
+                expectArgs(args, 2, 2, "del <id>");
+                return new BatchCommand(Op.DEL, id(args.get(1)), null, null, 0, null);
+            }
+            default -> throw new IllegalArgumentException("Unknown command '" + args.get(0) + "'");
+        }
+    }
+
+    // Run the command against the board. Returns false if it refers to a task that isn't there.
+    public boolean apply(Board board) {
+        switch (op) {
+            case ADD -> {
+                board.add(new Task(board.nextId(), title, description, priority), column);
+                return true;
+            }
+            case EDIT -> {
+                Task t = board.find(id);
+                if (t == null) {
+                    return false;
+                }
+                board.edit(t, title, description, priority);
+                return true;
+            }
+            case MOVE -> {
+                return board.move(id, column);
+            }
+            case DEL -> {
+                return board.remove(id);
+            }
+        }
+        return false;
+    }
+
+    public Op getOp() {
+        return op;
+    }
+
+    public long getId() {
+        return id;
+    }
+
+    // split a line into arguments, keeping quoted text together
+    static List<String> tokenize(String line) {
+        List<String> args = new ArrayList<>();
+        StringBuilder current = new StringBuilder();
+        boolean inQuotes = false;
+        boolean hasArg = false;
+
+        for (int i = 0; i < line.length(); i++) {
+            char c = line.charAt(i);
+            if (inQuotes) {
+                if (c == '\\' && i + 1 < line.length() && (line.charAt(i + 1) == '"' || line.charAt(i + 1) == '\\')) {
+                    current.append(line.charAt(++i));
+                } else if (c == '"') {
+                    inQuotes = false;
+                } else {
+                    current.append(c);
+                }
+            } else if (c == '"') {
+                inQuotes = true;
+                hasArg = true;
+            } else if (Character.isWhitespace(c)) {
+                if (hasArg) {
+                    args.add(current.toString());
+                    current.setLength(0);
+                    hasArg = false;
+                }
+            } else {
+                current.append(c);
+                hasArg = true;
+            }
+        }
+
+        if (inQuotes) {
+            throw new IllegalArgumentException("Unclosed quote");
+        }
+        if (hasArg) {
+            args.add(current.toString());
+        }
+        return args;
+    }
+
+    private static void expectArgs(List<String> args, int min, int max, String usage) {
+        int count = args.size();
+        if (count < min || count > max) {
+            throw new IllegalArgumentException("Usage: " + usage);
+        }
+    }
+
+    private static long id(String s) {
+        try {
+            long id = Long.parseLong(s);
+            if (id >= 0) {
+                return id;
+            }
+        } catch (NumberFormatException e) {
+            // reported below
+        }
+        throw new IllegalArgumentException("Invalid id '" + s + "'");
+    }
+
+    private static int priority(String s) {
+        try {
+            int v = Integer.parseInt(s);
+            if (v >= 1 && v <= 3) {
+                return v;
+            }
+        } catch (NumberFormatException e) {
+            // reported below
+        }
+        throw new IllegalArgumentException("Invalid priority '" + s + "': must be 1, 2, or 3");
+    }
+
+    private static Column column(String s) {
+        Column col = Column.fromString(s);
+        if (col == null) {
+            throw new IllegalArgumentException("Unknown list '" + s + "': use TODO, DOING or DONE");
+        }
+        return col;
+    }
+}
@@ -0,0 +1,65 @@
+package com.charlesfitzgerald.kanban;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+
+// Applies a script of BatchCommands to a board, one command per line, without any prompts.
+// Nothing is written while the script runs unless saveEvery is set; the board is saved once at
+// the end, and the journal is paused until then since that snapshot covers every change. With
+// saveEvery > 0 the changes are also persisted every saveEvery commands, which is a journal
+// append in the common case.
+public class BatchRunner {
+    private final Board board;
+    private final int saveEvery;
+    private int applied;
+    private int failed;
+
+    public BatchRunner(Board board, int saveEvery) {
+        this.board = board;
+        this.saveEvery = saveEvery;
+    }
+
+    // Run every line from the reader and save. Bad lines and commands on missing tasks are
+    // reported and skipped. Returns whether the final save succeeded.
+    public boolean run(BufferedReader in) throws IOException {
+        String line;
+        int lineNumber = 0;
+        if (saveEvery == 0) {
+            board.pauseJournal();
+        }
+        while ((line = in.readLine()) != null) {
+            lineNumber++;
+            BatchCommand command;
+            try {
+                command = BatchCommand.parse(line);
+            } catch (IllegalArgumentException e) {
+                System.out.println("Line " + lineNumber + ": " + e.getMessage());
+                failed++;
+                continue;
+            }
+            if (command == null) {
+                continue;
+            }
+
+            if (!command.apply(board)) {
+                System.out.println("Line " + lineNumber + ": Task with ID " + command.getId() + " not found");
+                failed++;
+                continue;
+            }
+
+            applied++;
+            if (saveEvery > 0 && applied % saveEvery == 0 && !board.persist()) {
+                System.out.println("Line " + lineNumber + ": Failed to save board");
+            }
+        }
+        return board.save();
+    }
+
+    public int getApplied() {
+        return applied;
+    }
+
+    public int getFailed() {
+        return failed;
+    }
+}
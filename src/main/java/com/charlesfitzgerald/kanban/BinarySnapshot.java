@@ -0,0 +1,198 @@
+package com.charlesfitzgerald.kanban;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+// Compact binary board snapshot.
+//
+// Layout:
+//   magic "KBB" + version byte
+//   board name
+//   varint next id (version 2 and later)
+//   for each column (TODO, DOING, DONE): varint task count, then per task
+//     zigzag varint id, priority byte, title, description
+// Strings are a varint of (UTF-8 byte length + 1) followed by the bytes; 0 encodes null.
+public class BinarySnapshot {
+    private static final byte[] MAGIC = {'K', 'B', 'B'};
+    private static final byte VERSION = 2;
+    // version 1 files have no next id; it is worked out from the highest task id instead
+    private static final byte MIN_VERSION = 1;
+
+    private BinarySnapshot() {}
+
+    // true when the file starts with the binary snapshot magic number
+    public static boolean isBinary(Path path) throws IOException {
+        byte[] head = new byte[MAGIC.length + 1];
+        try (InputStream in = Files.newInputStream(path)) {
+            if (in.readNBytes(head, 0, head.length) < head.length) {
+                return false;
+            }
+        }
+        for (int i = 0; i < MAGIC.length; i++) {
+            if (head[i] != MAGIC[i]) {
+                return false;
+            }
+        }
+        return head[MAGIC.length] >= MIN_VERSION && head[MAGIC.length] <= VERSION;
+    }
+
+    public static void write(OutputStream out, SaveData data) throws IOException {
+        out.write(MAGIC);
+        out.write(VERSION);
+        writeString(out, data.getBoardName());
+        // stored +1 so that -1 (unknown) still fits an unsigned varint
+        writeVarLong(out, data.getNextId() + 1);
+        writeColumn(out, data.getTodo());
+        writeColumn(out, data.getDoing());
+        writeColumn(out, data.getDone());
+    }
+
+    // Decodes the file straight out of a memory-mapped buffer; max id is tracked while reading.
+    // Descriptions aren't decoded: the tasks keep the mapping and read them on demand.
+    public static SaveData read(Path path) throws IOException {
+        try (FileChannel ch = FileChannel.open(path, StandardOpenOption.READ)) {
+            long size = ch.size();
+            if (size > Integer.MAX_VALUE) {
+                throw new IOException("Snapshot too large to map: " + path);
+            }
+            MappedByteBuffer buf = ch.map(FileChannel.MapMode.READ_ONLY, 0, size);
+            return read(buf, path.toString());
+        }
+    }
+
+    // snapshot received in memory, e.g. by a replication follower; tasks keep the array
+    public static SaveData read(byte[] bytes) throws IOException {
+        return read(ByteBuffer.wrap(bytes), "in-memory snapshot");
+    }
+
+    private static SaveData read(ByteBuffer buf, String source) throws IOException {
+        try {
+            for (byte b : MAGIC) {
+                if (buf.get() != b) {
+                    throw new IOException("Not a binary board snapshot: " + source);
+                }
+            }
+
+            byte version = buf.get();
+            if (version < MIN_VERSION || version > VERSION) {
+                throw new IOException("Unsupported binary board snapshot version " + version + ": " + source);
+            }
+
+            String boardName = readString(buf);
+            long nextId = version >= 2 ? readVarLong(buf) - 1 : -1;
+            long[] maxId = {0};
+            List<Task> todo = readColumn(buf, maxId);
+            List<Task> doing = readColumn(buf, maxId);
+            List<Task> done = readColumn(buf, maxId);
+            return SaveData.wrap(todo, doing, done, boardName, maxId[0], nextId);
+        } catch (BufferUnderflowException e) {
+            throw new IOException("Truncated binary board snapshot: " + source, e);
+        }
+    }
+
+    private static void writeColumn(OutputStream out, List<Task> tasks) throws IOException {
+        writeVarLong(out, tasks.size());
+        for (Task t : tasks) {
+            long id = t.getId();
+            writeVarLong(out, (id << 1) ^ (id >> 63));
+            out.write(t.getPriority());
+            writeString(out, t.getTitle());
+            byte[] mapped = t instanceof LazyTask lazy ? lazy.mappedDescriptionBytes() : null;
+            if (mapped != null) {
+                // copied as-is, without decoding to a String and encoding back
+                writeVarLong(out, mapped.length + 1L);
+                out.write(mapped);
+            } else {
+                writeString(out, t.getDescription());
+            }
+        }
+    }
+
+    private static List<Task> readColumn(ByteBuffer buf, long[] maxId) throws IOException {
+        long count = readVarLong(buf);
+        if (count < 0 || count > buf.remaining()) {
+            throw new IOException("Corrupt task count in binary board snapshot");
+        }
+
+        List<Task> tasks = new ArrayList<>((int) count);
+        for (long i = 0; i < count; i++) {
+            long zigzag = readVarLong(buf);
+            long id = (zigzag >>> 1) ^ -(zigzag & 1);
+            int priority = buf.get();
+            String title = readString(buf);
+            tasks.add(readDescription(buf, id, title, priority));
+            if (id > maxId[0]) {
+                maxId[0] = id;
+            }
+        }
+        return tasks;
+    }
+
+    // Non-empty descriptions are left in the mapping for LazyTask to decode when asked
+    private static Task readDescription(ByteBuffer buf, long id, String title, int priority) throws IOException {
+        long len = readVarLong(buf) - 1;
+        if (len <= 0) {
+            return new Task(id, title, len < 0 ? null : "", priority);
+        }
+        if (len > buf.remaining()) {
+            throw new IOException("Corrupt string length in binary board snapshot");
+        }
+        int offset = buf.position();
+        buf.position(offset + (int) len);
+        return new LazyTask(id, title, buf, offset, (int) len, priority);
+    }
+
+    private static void writeString(OutputStream out, String s) throws IOException {
+        if (s == null) {
+            writeVarLong(out, 0);
+            return;
+        }
+        byte[] bytes = s.getBytes(StandardCharsets.UTF_8);
+        writeVarLong(out, bytes.length + 1L);
+        out.write(bytes);
+    }
+
+    private static String readString(ByteBuffer buf) throws IOException {
+        long len = readVarLong(buf) - 1;
+        if (len < 0) {
+            return null;
+        }
+        if (len > buf.remaining()) {
+            throw new IOException("Corrupt string length in binary board snapshot");
+        }
+        byte[] bytes = new byte[(int) len];
+        buf.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static void writeVarLong(OutputStream out, long v) throws IOException {
+        while ((v & ~0x7FL) != 0) {
+            out.write((int) ((v & 0x7F) | 0x80));
+            v >>>= 7;
+        }
+        out.write((int) v);
+    }
+
+    private static long readVarLong(ByteBuffer buf) throws IOException {
+        long result = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            byte b = buf.get();
+            result |= (long) (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return result;
+            }
+        }
+        throw new IOException("Malformed varint in binary board snapshot");
+    }
+}
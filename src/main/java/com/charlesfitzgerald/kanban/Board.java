@@ -1,49 +1,155 @@
 package com.charlesfitzgerald.kanban;
-import com.google.gson.Gson;
-import com.google.gson.GsonBuilder;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonWriter;
 
 import java.io.*;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.function.Predicate;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ForkJoinPool;
+import java.util.regex.Pattern;
+import java.util.zip.Deflater;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
 
 public class Board {
-    private final ArrayList<Task> todo;
-    private final ArrayList<Task> doing;
-    private final ArrayList<Task> done;
+    // Columns are persistent vectors (see TaskVector), so a snapshot of the board for a save, a
+    // listing or the undo history costs O(1). Tasks on the board are never changed in place,
+    // since snapshots share them: edit() replaces the task instead.
+    private TaskVector todo;
+    private TaskVector doing;
+    private TaskVector done;
+    // vector nodes made under this token are changed in place; replaced whenever a version of
+    // the columns is handed out, which freezes that version
+    private Object owner = new Object();
+    // slot for the next task appended to any column
+    private int nextSlot;
+    // id -> (task, column, slot in the column's vector)
+    private final TaskIndex index;
+    // sorted listings per column; built on first use, then kept up to date by every mutation
+    private SortedViews sortedViews;
+    // word index over titles and descriptions; built on first search, then kept up to date
+    private TextIndex textIndex;
+    // In columnar mode the tasks live here instead of in the vectors, which stay empty along
+    // with the id index; see setColumnar(). Null otherwise.
+    private ColumnarBoard columnar;
     private long nextId;
     private String boardName;
     private static final String DEFAULT_SAVE_DIR = "boards";
+    private static final SaveDataAdapter SAVE_DATA_ADAPTER = new SaveDataAdapter();
+    private static final long DEFAULT_JOURNAL_COMPACTION_BYTES = 1 << 20;
+    public static final int DEFAULT_COMPRESSION_LEVEL = 6;
+    public static final int DEFAULT_COMPRESSION_BUFFER_SIZE = 64 * 1024;
+
+    // see Metrics; all of these cost a branch while stats are off
+    private static final Histogram FIND_TIME = Metrics.latency("board.find");
+    private static final Histogram ADD_TIME = Metrics.latency("board.add");
+    private static final Histogram REMOVE_TIME = Metrics.latency("board.remove");
+    private static final Histogram MOVE_TIME = Metrics.latency("board.move");
+    private static final Histogram EDIT_TIME = Metrics.latency("board.edit");
+    private static final Histogram BULK_TIME = Metrics.latency("board.bulk");
+    private static final Histogram SEARCH_TIME = Metrics.latency("board.search");
+    private static final Histogram GREP_TIME = Metrics.latency("board.grep");
+    private static final Histogram QUERY_TIME = Metrics.latency("board.query");
+    private static final Histogram TOP_TIME = Metrics.latency("board.top");
+    private static final Histogram SORT_BUILD_TIME = Metrics.latency("board.sort.build");
+    private static final Histogram LOAD_TIME = Metrics.latency("board.load");
+    private static final Histogram SAVE_TIME = Metrics.latency("board.save");
+    private static final Histogram SAVE_BYTES = Metrics.bytes("board.save.bytes");
+    private static final Histogram PERSIST_TIME = Metrics.latency("board.persist");
+    private static final Histogram PERSIST_BYTES = Metrics.bytes("board.persist.bytes");
 
     private String saveDir = DEFAULT_SAVE_DIR;
 
+    // journal of changes since the last snapshot; null until the board has been loaded or saved
+    private BoardJournal journal;
+    // set by pauseJournal(): changes aren't journaled until the next save() snapshots them
+    private boolean journalPaused;
+    private long journalCompactionBytes = DEFAULT_JOURNAL_COMPACTION_BYTES;
+
+    // background writer for snapshots; null means saves run on the calling thread
+    private BoardSaver saver;
+    private SnapshotFormat snapshotFormat = SnapshotFormat.JSON;
+    // for SnapshotFormat.GZIP; see setCompression()
+    private int compressionLevel = DEFAULT_COMPRESSION_LEVEL;
+    private int compressionBufferSize = DEFAULT_COMPRESSION_BUFFER_SIZE;
+    // changed since the last save or persist
+    private boolean dirty;
+    // leases ids from boards/<name>.ids so other processes never get the same ones;
+    // null until the board has been loaded or saved, and ids are counted locally until then
+    private IdAllocator ids;
+    // ships every change to follower processes; null unless this board is a replication leader
+    private ReplicationLeader replication;
+
+    // undo history, latest first, and the steps undone since the last change; see checkpoint()
+    private final ArrayDeque<UndoStep> undoSteps = new ArrayDeque<>();
+    private final ArrayDeque<UndoStep> redoSteps = new ArrayDeque<>();
+    // changes since the last checkpoint; null when there are none
+    private UndoStep step;
+    // how many steps undo can go back; 0 turns recording off
+    private int undoLimit;
+
     // Default constructor (starts empty)
     public Board() {
-        this(new ArrayList<>(), new ArrayList<>(), new ArrayList<>());
+        this(List.of(), List.of(), List.of());
     }
 
     // Constructor that accepts starting tasks
     public Board(List<Task> todo, List<Task> doing, List<Task> done) {
-        this.todo = new ArrayList<>(todo);
-        this.doing = new ArrayList<>(doing);
-        this.done = new ArrayList<>(done);
+        // sized by rebuild()
+        this.index = new TaskIndex();
         this.nextId = 0;
         this.boardName = "board";
+        rebuild(todo, doing, done);
     }
 
     // Constructor that accepts starting tasks and name
     public Board(String boardName, List<Task> todo, List<Task> doing, List<Task> done) {
-        this.todo = new ArrayList<>(todo);
-        this.doing = new ArrayList<>(doing);
-        this.done = new ArrayList<>(done);
+        // sized by rebuild()
+        this.index = new TaskIndex();
         this.nextId = 0;
         this.boardName = boardName;
+        rebuild(todo, doing, done);
     }
 
-    // enum version of listing
+    // enum version of listing: a snapshot of the column that later changes don't affect; in
+    // columnar mode, a live view instead
     public List<Task> get(Column column) {
+        if (columnar != null) {
+            return columnar.get(column);
+        }
+        freeze();
+        return column(column);
+    }
+
+    // the column's tasks for reading inside the board, without freezing anything
+    private List<Task> tasks(Column column) {
+        return columnar != null ? columnar.get(column) : column(column);
+    }
+
+    private Task lookup(long id) {
+        return columnar != null ? columnar.find(id) : index.get(id);
+    }
+
+    // position of the task in its column as listings show it
+    private int position(long id) {
+        return columnar != null ? columnar.position(id) : column(index.column(id)).indexOfSlot(index.position(id));
+    }
+
+    private TaskVector column(Column column) {
         return switch (column) {
             case TODO -> this.todo;
             case DOING -> this.doing;
@@ -51,89 +157,598 @@ public class Board {
         };
     }
 
+    private void setColumn(Column column, TaskVector tasks) {
+        switch (column) {
+            case TODO -> this.todo = tasks;
+            case DOING -> this.doing = tasks;
+            case DONE -> this.done = tasks;
+        }
+    }
+
+    // stop changing the current vectors in place, so they can be handed out
+    private void freeze() {
+        owner = new Object();
+    }
+
+    private int takeSlot() {
+        reserveSlots(1);
+        return nextSlot++;
+    }
+
+    // make sure `count` more slots can be handed out; call before anything else changes
+    private void reserveSlots(int count) {
+        if (nextSlot > Integer.MAX_VALUE - count) {
+            // slots are never reused; renumbering starts them from 0 again
+            rebuild(todo, doing, done);
+        }
+    }
+
     // enum version to add tasks to list
     public void add(Task task, Column addToCol) {
-        get(addToCol).add(task);
+        long start = Metrics.start();
+        if (columnar != null) {
+            columnar.add(task, addToCol);
+        } else {
+            int slot = takeSlot();
+            noteChange(task.getId());
+            setColumn(addToCol, column(addToCol).append(slot, task, owner));
+            index.put(task, addToCol, slot);
+        }
+        if (sortedViews != null) {
+            sortedViews.add(task, addToCol);
+        }
+        if (textIndex != null) {
+            textIndex.add(task);
+        }
+        dirty = true;
+        if (journaling()) {
+            journal.recordAdd(task, addToCol);
+        }
+        if (replication != null) {
+            replication.recordAdd(task, addToCol);
+        }
+        ADD_TIME.recordSince(start);
     }
 
     // function to find task in enum Columns by id
     public Task find(long id) {
-        for (Column col : Column.values()) {
-            for (Task t : get(col)) {
-                if (t.getId() == id) {
-                    return t;
-                }
-            }
-
-        }
-        return null;
+        long start = Metrics.start();
+        Task t = lookup(id);
+        FIND_TIME.recordSince(start);
+        return t;
     }
 
     public Column getCol(long id) {
-        for (Column col : Column.values()) {
-            for (Task t : get(col)) {
-                if(t.getId() == id) {
-                    return col;
-                }
-            }
-        }
-        return null;
+        return columnar != null ? columnar.getCol(id) : index.column(id);
     }
 
     // function to remove task from list using enum
     public boolean remove(long id) {
-        for (Column col : Column.values()) {
-            List<Task> list = get(col);
-            for (var it = list.iterator(); it.hasNext(); ) {
-                Task t = it.next();
-                if (t.getId() == id) {
-                    it.remove();
-                    return true;
-                }
-            }
+        long start = Metrics.start();
+        Column col = getCol(id);
+        if (col == null) {
+            return false;
+        }
+
+        noteChange(id);
+        Task removed = lookup(id);
+        if (columnar != null) {
+            columnar.remove(id);
+        } else {
+            setColumn(col, column(col).remove(index.position(id), owner));
+            index.remove(id);
+        }
+        if (sortedViews != null) {
+            sortedViews.remove(removed, col);
         }
-        return false;
+        if (textIndex != null) {
+            textIndex.remove(removed);
+        }
+        dirty = true;
+        if (journaling()) {
+            journal.recordRemove(id);
+        }
+        if (replication != null) {
+            replication.recordRemove(id);
+        }
+        REMOVE_TIME.recordSince(start);
+        return true;
     }
 
     // function to move task from one list to another using enum
     public boolean move(long id, Column to) {
-        List<Task> toList = get(to);
-        if (toList == null) {
+        long start = Metrics.start();
+        if (to == null) {
             return false;
         }
 
-        Task moveTask = find(id);
+        Task moveTask = lookup(id);
 
         if (moveTask != null) {
-            remove(id);
-            toList.add(moveTask);
+            Column from = getCol(id);
+            if (columnar != null) {
+                columnar.move(id, to);
+            } else {
+                int slot = takeSlot();
+                noteChange(id);
+                setColumn(from, column(from).remove(index.position(id), owner));
+                setColumn(to, column(to).append(slot, moveTask, owner));
+                index.put(moveTask, to, slot);
+            }
+            if (sortedViews != null) {
+                sortedViews.remove(moveTask, from);
+                sortedViews.add(moveTask, to);
+            }
+            dirty = true;
+            if (journaling()) {
+                journal.recordMove(id, to);
+            }
+            if (replication != null) {
+                replication.recordMove(id, to);
+            }
+            MOVE_TIME.recordSince(start);
             return true;
         } else {
             return false;
         }
     }
 
-    public void edit(Task t, String title, String description, int priority) {
-        t.setTitle(title);
-        t.setDescription(description);
-        t.setPriority(priority);
+    // Remove every task in the column that matches, in one pass over the column instead of a
+    // lookup per task. Returns the removed tasks in board order.
+    public List<Task> removeIf(Column column, Predicate<Task> filter) {
+        long start = Metrics.start();
+        List<Task> matched = matching(column, filter);
+        if (!matched.isEmpty()) {
+            if (columnar == null) {
+                setColumn(column, column(column).removeAll(slotsOf(matched), owner));
+            }
+            for (Task t : matched) {
+                long id = t.getId();
+                if (columnar != null) {
+                    columnar.remove(id);
+                } else {
+                    index.remove(id);
+                }
+                if (sortedViews != null) {
+                    sortedViews.remove(t, column);
+                }
+                if (textIndex != null) {
+                    textIndex.remove(t);
+                }
+                if (journaling()) {
+                    journal.recordRemove(id);
+                }
+                if (replication != null) {
+                    replication.recordRemove(id);
+                }
+            }
+            dirty = true;
+        }
+        BULK_TIME.recordSince(start);
+        return matched;
     }
 
-    public SaveData toSaveData() {
-        List<Task> todoCopy = getTodo();
-        List<Task> doingCopy = getDoing();
-        List<Task> doneCopy = getDone();
-        String boardName = getBoardName();
+    // Move every task in `from` that matches to the end of `to`, keeping their order, in one
+    // pass over `from`. Returns the moved tasks.
+    public List<Task> moveIf(Column from, Predicate<Task> filter, Column to) {
+        long start = Metrics.start();
+        List<Task> matched = matching(from, filter);
+        if (!matched.isEmpty()) {
+            if (columnar == null) {
+                setColumn(from, column(from).removeAll(slotsOf(matched), owner));
+            }
+            TaskVector target = column(to);
+            for (Task t : matched) {
+                long id = t.getId();
+                if (columnar != null) {
+                    columnar.move(id, to);
+                } else {
+                    int slot = nextSlot++;
+                    target = target.append(slot, t, owner);
+                    index.put(t, to, slot);
+                }
+                if (sortedViews != null) {
+                    sortedViews.remove(t, from);
+                    sortedViews.add(t, to);
+                }
+                if (journaling()) {
+                    journal.recordMove(id, to);
+                }
+                if (replication != null) {
+                    replication.recordMove(id, to);
+                }
+            }
+            setColumn(to, target);
+            dirty = true;
+        }
+        BULK_TIME.recordSince(start);
+        return matched;
+    }
+
+    // the column's tasks that match, with room made for them to be appended elsewhere and
+    // their old places noted for undo
+    private List<Task> matching(Column column, Predicate<Task> filter) {
+        List<Task> matched = new ArrayList<>();
+        for (Task t : tasks(column)) {
+            if (filter.test(t)) {
+                matched.add(t);
+            }
+        }
+        reserveSlots(matched.size());
+        for (Task t : matched) {
+            noteChange(t.getId());
+        }
+        return matched;
+    }
+
+    private int[] slotsOf(List<Task> tasks) {
+        int[] slots = new int[tasks.size()];
+        for (int i = 0; i < slots.length; i++) {
+            slots[i] = index.position(tasks.get(i).getId());
+        }
+        return slots;
+    }
+
+    // Replace the columns with the given tasks, numbering slots from 0, and rebuild the id
+    // index. Derived indexes are rebuilt on next use and the undo history is dropped.
+    private void rebuild(List<Task> todo, List<Task> doing, List<Task> done) {
+        freeze();
+        sortedViews = null;
+        textIndex = null;
+        nextSlot = 0;
+        if (columnar != null) {
+            columnar = ColumnarBoard.fromSaveData(SaveData.wrap(todo, doing, done, boardName, -1, -1));
+            todo = List.of();
+            doing = List.of();
+            done = List.of();
+        }
+        index.reset(todo.size() + doing.size() + done.size());
+        this.todo = build(todo, Column.TODO);
+        this.doing = build(doing, Column.DOING);
+        this.done = build(done, Column.DONE);
+        clearHistory();
+    }
+
+    private TaskVector build(List<Task> tasks, Column col) {
+        TaskVector vector = TaskVector.of(tasks, nextSlot, owner);
+        for (Task t : tasks) {
+            index.put(t, col, nextSlot++);
+        }
+        return vector;
+    }
+
+    // Replaces the task with an edited copy (the board's task with t's id, whatever t is) and
+    // returns the copy. A task that isn't on the board is copied and nothing else changes.
+    public Task edit(Task t, String title, String description, int priority) {
+        long start = Metrics.start();
+        long id = t.getId();
+        Task edited = new Task(id, title, description, priority);
+        Task current = lookup(id);
+        if (current == null) {
+            EDIT_TIME.recordSince(start);
+            return edited;
+        }
+
+        noteChange(id);
+        Column col = getCol(id);
+        if (columnar != null) {
+            columnar.edit(id, title, description, priority);
+        } else {
+            int slot = index.position(id);
+            setColumn(col, column(col).replace(slot, edited, owner));
+            index.put(edited, col, slot);
+        }
+        if (sortedViews != null) {
+            sortedViews.remove(current, col);
+            sortedViews.add(edited, col);
+        }
+        if (textIndex != null) {
+            textIndex.remove(current);
+            textIndex.add(edited);
+        }
+        dirty = true;
+        if (journaling()) {
+            journal.recordEdit(edited);
+        }
+        if (replication != null) {
+            replication.recordEdit(edited);
+        }
+        EDIT_TIME.recordSince(start);
+        return edited;
+    }
+
+    // iterate a column in sort order without sorting it on every call (except in columnar mode)
+    public Iterable<Task> sorted(Column column, SortKey key, boolean descending) {
+        if (columnar != null) {
+            return sortedCopy(column, key, descending);
+        }
+        return sortedViews().view(column, key, descending);
+    }
+
+    // Columnar boards keep no sorted views, which would hold a Task for every task on the board,
+    // so their sorted listings sort a copy of the column each time.
+    private List<Task> sortedCopy(Column column, SortKey key, boolean descending) {
+        List<Task> copy = new ArrayList<>(columnar.get(column));
+        copy.sort(key.comparator(descending));
+        return copy;
+    }
+
+    // Tasks that come after task `cursorId` in a listing: board order when key is null,
+    // otherwise sort order, found by seeking the sorted view rather than skipping through it.
+    // Null when the task isn't in the column.
+    public Iterable<Task> after(Column column, SortKey key, boolean descending, long cursorId) {
+        Task cursor = lookup(cursorId);
+        if (cursor == null || getCol(cursorId) != column) {
+            return null;
+        }
+        if (key == null) {
+            List<Task> list = get(column);
+            return list.subList(position(cursorId) + 1, list.size());
+        }
+        if (columnar != null) {
+            List<Task> sorted = sortedCopy(column, key, descending);
+            int i = 0;
+            while (sorted.get(i).getId() != cursorId) {
+                i++;
+            }
+            return sorted.subList(i + 1, sorted.size());
+        }
+        return sortedViews().after(column, key, descending, cursor);
+    }
+
+    // The first k tasks of the column in sort order. Reads them off the sorted view when it has
+    // been built; otherwise a bounded heap picks them in O(n log k) without building one.
+    public List<Task> top(Column column, SortKey key, boolean descending, int k) {
+        long start = Metrics.start();
+        List<Task> result = selectTop(column, key, descending, k);
+        TOP_TIME.recordSince(start);
+        return result;
+    }
+
+    private List<Task> selectTop(Column column, SortKey key, boolean descending, int k) {
+        List<Task> result = new ArrayList<>();
+        if (k <= 0) {
+            return result;
+        }
+        if (sortedViews != null) {
+            for (Task t : sortedViews.view(column, key, descending)) {
+                if (result.size() == k) {
+                    break;
+                }
+                result.add(t);
+            }
+            return result;
+        }
+
+        List<Task> list = tasks(column);
+        if (k >= list.size()) {
+            result.addAll(list);
+            result.sort(key.comparator(descending));
+            return result;
+        }
+        return key.top(list, descending, k);
+    }
+
+    private SortedViews sortedViews() {
+        if (sortedViews == null) {
+            long start = Metrics.start();
+            SortedViews views = new SortedViews();
+            for (Column col : Column.values()) {
+                for (Task t : tasks(col)) {
+                    views.add(t, col);
+                }
+            }
+            sortedViews = views;
+            SORT_BUILD_TIME.recordSince(start);
+        }
+        return sortedViews;
+    }
+
+    // tasks whose title or description contain every query word, in id order; see TextIndex.search
+    public List<Task> search(String query) {
+        long start = Metrics.start();
+        long[] ids = textIndex().search(query);
+        List<Task> results = new ArrayList<>(ids.length);
+        for (long id : ids) {
+            results.add(lookup(id));
+        }
+        SEARCH_TIME.recordSince(start);
+        return results;
+    }
 
-        return new SaveData(todoCopy, doingCopy, doneCopy, boardName);
+    private TextIndex textIndex() {
+        if (textIndex == null) {
+            textIndex = TextIndex.build(List.of(tasks(Column.TODO), tasks(Column.DOING), tasks(Column.DONE)));
+        }
+        return textIndex;
+    }
+
+    // Tasks whose title or description (as chosen) contain a match for the pattern, in id order,
+    // matched in parallel on the common fork/join pool; see GrepTask. The whole result comes back
+    // at once: any chunk may hold the lowest id, so nothing can be shown in id order until all are done.
+    public List<Task> grep(Pattern pattern, boolean titles, boolean descriptions) {
+        return grep(pattern, titles, descriptions, ForkJoinPool.commonPool());
+    }
+
+    public List<Task> grep(Pattern pattern, boolean titles, boolean descriptions, ForkJoinPool pool) {
+        long start = Metrics.start();
+        // frozen, so the workers read a version of the columns nothing else changes
+        Task[] matches = pool.invoke(new GrepTask(List.of(get(Column.TODO), get(Column.DOING), get(Column.DONE)),
+                pattern, titles, descriptions));
+        GREP_TIME.recordSince(start);
+        return Arrays.asList(matches);
+    }
+
+    // Runs a query by the cheapest way in: the id index (one lookup, or a walk over a narrow id
+    // range), the text index for ~ words, the priority buckets of the sorted views, or a scan of
+    // the columns it names. Each costs the number of candidates it yields, all of which are
+    // checked against the whole filter, so the plan only changes the speed, never the result.
+    // The text index and sorted views are only used once search() or a sorted listing has built
+    // them: building one costs more than a scan, and every later change would pay to maintain it.
+    public TaskQuery.Result query(TaskQuery query) {
+        long start = Metrics.start();
+        TaskQuery.Result result = runQuery(query);
+        QUERY_TIME.recordSince(start);
+        return result;
+    }
+
+    private TaskQuery.Result runQuery(TaskQuery query) {
+        Set<Column> columns = query.getColumns();
+        long scanCost = 0;
+        for (Column col : columns) {
+            scanCost += tasks(col).size();
+        }
+        long idCost = query.hasIdBounds()
+                ? Math.max(0, query.getMaxId() - query.getMinId() + 1)
+                : Long.MAX_VALUE;
+        long[] textIds = query.getWords() == null || textIndex == null ? null : textIndex.search(query.getWords());
+        long textCost = textIds == null ? Long.MAX_VALUE : textIds.length;
+        long priorityCost = Long.MAX_VALUE;
+        if (query.hasPriorityBounds() && sortedViews != null) {
+            priorityCost = 0;
+            for (Column col : columns) {
+                priorityCost += sortedViews.countPriority(col, query.getMinPriority(), query.getMaxPriority());
+            }
+        }
+
+        Predicate<Task> filter = query.getFilter();
+        Comparator<Task> order = query.getOrder();
+        QueryMatches matches;
+        String plan;
+        long least = Math.min(Math.min(idCost, textCost), Math.min(priorityCost, scanCost));
+        if (least == idCost) {
+            plan = "id index";
+            matches = new QueryMatches(order != null ? order : boardOrder(), query.getLimit());
+            // stops on reaching maxId rather than passing it, which overflows at Long.MAX_VALUE
+            for (long id = query.getMinId(); id <= query.getMaxId(); id++) {
+                Task t = lookup(id);
+                if (t != null && columns.contains(getCol(id)) && filter.test(t)) {
+                    matches.add(t);
+                }
+                if (id == query.getMaxId()) {
+                    break;
+                }
+            }
+        } else if (least == textCost) {
+            plan = "text index";
+            matches = new QueryMatches(order != null ? order : boardOrder(), query.getLimit());
+            for (long id : textIds) {
+                Task t = lookup(id);
+                if (columns.contains(getCol(id)) && filter.test(t)) {
+                    matches.add(t);
+                }
+            }
+        } else if (least == priorityCost) {
+            plan = "priority index";
+            matches = new QueryMatches(order != null ? order : boardOrder(), query.getLimit());
+            for (Column col : columns) {
+                for (Task t : sortedViews.priorityRange(col, query.getMinPriority(), query.getMaxPriority())) {
+                    if (filter.test(t)) {
+                        matches.add(t);
+                    }
+                }
+            }
+        } else {
+            // columns come in board order, so without ORDER BY the first matches are the answer
+            plan = "scan";
+            matches = new QueryMatches(order, query.getLimit());
+            for (Column col : Column.values()) {
+                if (columns.contains(col)) {
+                    for (Task t : tasks(col)) {
+                        if (filter.test(t)) {
+                            matches.add(t);
+                        }
+                    }
+                }
+            }
+        }
+        return new TaskQuery.Result(matches.result(), matches.count, plan + ", " + least + " candidates");
+    }
+
+    // column order, then position in the column, as listings show the board
+    private Comparator<Task> boardOrder() {
+        return Comparator.comparingInt((Task t) -> getCol(t.getId()).ordinal())
+                .thenComparingInt(t -> columnar != null ? columnar.position(t.getId()) : index.position(t.getId()));
+    }
+
+    // Counts every match but keeps only what will be shown: the first `limit` when the matches
+    // arrive in order (order == null), otherwise the best `limit` by a bounded heap, as in top().
+    private static final class QueryMatches {
+        final Comparator<Task> order;
+        final int limit;
+        final List<Task> kept = new ArrayList<>();
+        PriorityQueue<Task> heap;
+        int count;
+
+        QueryMatches(Comparator<Task> order, int limit) {
+            this.order = order;
+            this.limit = limit;
+        }
+
+        void add(Task t) {
+            count++;
+            if (limit == TaskQuery.NO_LIMIT) {
+                kept.add(t);
+            } else if (order == null) {
+                if (kept.size() < limit) {
+                    kept.add(t);
+                }
+            } else if (limit > 0) {
+                // heap head is the worst task kept so far; anything better replaces it
+                if (heap == null) {
+                    heap = new PriorityQueue<>(Math.min(limit, 1024), order.reversed());
+                }
+                if (heap.size() < limit) {
+                    heap.add(t);
+                } else if (order.compare(t, heap.peek()) < 0) {
+                    heap.poll();
+                    heap.add(t);
+                }
+            }
+        }
+
+        List<Task> result() {
+            if (heap != null) {
+                kept.addAll(heap);
+            }
+            if (order != null) {
+                kept.sort(order);
+            }
+            return kept;
+        }
+    }
+
+    // the board as it is now, unaffected by later changes; O(1), since the columns are shared,
+    // except in columnar mode, where the lists are copied (the views in them don't change)
+    public SaveData toSaveData() {
+        if (columnar != null) {
+            return SaveData.wrap(new ArrayList<>(columnar.get(Column.TODO)), new ArrayList<>(columnar.get(Column.DOING)),
+                    new ArrayList<>(columnar.get(Column.DONE)), getBoardName(), -1, getNextId());
+        }
+        freeze();
+        return SaveData.wrap(todo, doing, done, getBoardName(), -1, getNextId());
     }
 
     public void loadFrom(SaveData data) {
-        todo.clear(); doing.clear(); done.clear();
-        todo.addAll(data.getTodo());
-        doing.addAll(data.getDoing());
-        done.addAll(data.getDone());
+        // the journal no longer describes this content, so the next persist() writes a snapshot
+        journal = null;
+        rebuild(data.getTodo(), data.getDoing(), data.getDone());
+        applyBoardName(data);
+        if (data.getNextId() > nextId) {
+            nextId = data.getNextId();
+        }
+        dirty = true;
+        if (replication != null) {
+            replication.restart(this);
+        }
+    }
 
+    private void adopt(SaveData data) {
+        rebuild(data.getTodo(), data.getDoing(), data.getDone());
+        applyBoardName(data);
+    }
+
+    private void applyBoardName(SaveData data) {
         String loadedName = data.getBoardName();
         if (loadedName != null && !loadedName.isBlank()) {
             this.boardName = loadedName;
@@ -141,36 +756,404 @@ public class Board {
     }
 
     public boolean save() {
-        SaveData data = toSaveData();
-        Gson gson = new GsonBuilder().setPrettyPrinting().create();
+        return saveAsync().join();
+    }
 
-        String path = getSaveFilePath();
-        Path p = java.nio.file.Paths.get(path);
+    // Write a full snapshot. With the background saver running this returns as soon as the
+    // columns have been captured; otherwise the write happens before returning.
+    public CompletableFuture<Boolean> saveAsync() {
+        attachIds();
+        Path target = Paths.get(getSaveFilePath());
+        Path journalPath = getJournalPath();
 
         try {
-            // Ensure parent directory exists (no-op if already exists)
-            Path parent = p.getParent();
-            if (parent != null) {
-                Files.createDirectories(parent);
+            if (journal == null || !journal.getPath().equals(journalPath)) {
+                // a snapshot still queued would trim the old journal's bytes off the new one's
+                // file when it commits, so it has to land before the file is replaced
+                pendingSave().join();
+                journal = BoardJournal.reset(journalPath);
             }
+            journal.flush();
+        } catch (IOException e) {
+            return CompletableFuture.completedFuture(false);
+        }
+        // the journal now holds every change, whether or not the snapshot write succeeds;
+        // unless it was paused, when only the snapshot will
+        boolean paused = journalPaused;
+        journalPaused = false;
+        dirty = false;
 
-            try (Writer writer = Files.newBufferedWriter(p, java.nio.charset.StandardCharsets.UTF_8)) {
-                gson.toJson(data, writer);
+        // everything journaled so far is in this snapshot, so it can be trimmed once the snapshot commits
+        BoardJournal snapshotJournal = journal;
+        long journalOffset = journal.end();
+        // frozen columns, so the writer thread can walk them while edits carry on; edits racing
+        // the write are covered by the journal records after journalOffset
+        AtomicFile.Body body = snapshotBody(toSaveData());
+        // snapshots left in other formats go once this one commits
+        List<Path> superseded = snapshotPaths();
+        superseded.remove(target);
+
+        CompletableFuture<Boolean> result = saver == null
+                ? CompletableFuture.completedFuture(writeSnapshot(target, body, superseded, snapshotJournal, journalOffset))
+                : saver.submit(() -> writeSnapshot(target, body, superseded, snapshotJournal, journalOffset));
+        if (paused && !result.join()) {
+            // the changes made while paused are only in memory, so later journal records
+            // would replay onto a snapshot without them; the next persist() writes a snapshot
+            journal = null;
+            dirty = true;
+        }
+        return result;
+    }
+
+    // the snapshot in the current format; settings are read now, so a background write uses
+    // the ones in force when the save was asked for
+    private AtomicFile.Body snapshotBody(SaveData data) {
+        int level = compressionLevel;
+        int bufferSize = compressionBufferSize;
+        return switch (snapshotFormat) {
+            case JSON -> out -> writeJson(out, data);
+            case BINARY -> out -> BinarySnapshot.write(out, data);
+            case GZIP -> out -> writeGzipJson(out, data, level, bufferSize);
+        };
+    }
+
+    private static boolean writeSnapshot(Path target, AtomicFile.Body body, List<Path> superseded,
+                                         BoardJournal snapshotJournal, long journalOffset) {
+        long start = Metrics.start();
+        try {
+            long bytes = AtomicFile.write(target, body);
+            // before the journal is trimmed: an older snapshot left beside this one would
+            // otherwise be loaded without the changes the trim drops
+            for (Path stale : superseded) {
+                Files.deleteIfExists(stale);
             }
+            snapshotJournal.discardUpTo(journalOffset);
+            SAVE_TIME.recordSince(start);
+            if (start != 0) {
+                SAVE_BYTES.record(bytes);
+            }
+            return true;
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    private static void writeJson(OutputStream out, SaveData data) throws IOException {
+        JsonWriter writer = new JsonWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8));
+        writer.setIndent("  ");
+        writer.setHtmlSafe(true);
+        writer.setSerializeNulls(false);
+        SAVE_DATA_ADAPTER.write(writer, data);
+        writer.flush();
+    }
+
+    // The JSON snapshot deflated as the writer produces it, so the text never exists whole in
+    // memory; only the compressed bytes reach AtomicFile's buffer.
+    private static void writeGzipJson(OutputStream out, SaveData data, int level, int bufferSize) throws IOException {
+        LeveledGzipStream gzip = new LeveledGzipStream(out, bufferSize, level);
+        try {
+            writeJson(gzip, data);
+            gzip.finish();
+        } finally {
+            gzip.release();
+        }
+    }
+
+    // GZIPOutputStream at a chosen level. The stream underneath belongs to AtomicFile, which
+    // still has to sync it, so this one is finished and its deflater freed rather than closed.
+    private static final class LeveledGzipStream extends GZIPOutputStream {
+        LeveledGzipStream(OutputStream out, int bufferSize, int level) throws IOException {
+            super(out, bufferSize);
+            def.setLevel(level);
+        }
+
+        void release() {
+            def.end();
+        }
+    }
+
+    // write the board as pretty-printed JSON to boards/<name>-export.json, whatever the snapshot format
+    public boolean exportJson() {
+        SaveData data = toSaveData();
+        try {
+            AtomicFile.write(getExportPath(), out -> writeJson(out, data));
             return true;
         } catch (IOException e) {
             return false;
         }
     }
 
+    // start writing snapshots on a background thread instead of the caller's
+    public void startBackgroundSaver() {
+        if (saver == null) {
+            saver = new BoardSaver();
+        }
+    }
+
+    // wait for every queued snapshot write, then stop the background thread
+    public boolean stopBackgroundSaver() {
+        if (saver == null) {
+            return true;
+        }
+        boolean result = saver.lastResult().join();
+        saver.shutdown();
+        saver = null;
+        return result;
+    }
+
+    // future of the latest snapshot write (already complete when saving synchronously)
+    public CompletableFuture<Boolean> pendingSave() {
+        return saver == null ? CompletableFuture.completedFuture(true) : saver.lastResult();
+    }
+
+    // Flush journaled changes since the last persist. This appends only the changed records;
+    // a full snapshot is written instead when there is no journal yet, the board was renamed,
+    // or the journal has grown past the compaction threshold.
+    public boolean persist() {
+        if (journal == null || journalPaused || !journal.getPath().equals(getJournalPath())) {
+            return save();
+        }
+
+        long start = Metrics.start();
+        long pendingBytes = journal.pendingBytes();
+        try {
+            journal.flush();
+        } catch (IOException e) {
+            return false;
+        }
+        dirty = false;
+        PERSIST_TIME.recordSince(start);
+        if (start != 0) {
+            PERSIST_BYTES.record(pendingBytes);
+        }
+
+        if (journal.size() >= journalCompactionBytes) {
+            // the journal still holds every change, so compaction doesn't need to be waited on
+            CompletableFuture<Boolean> compaction = saveAsync();
+            return !compaction.isDone() || compaction.join();
+        }
+        return true;
+    }
+
+    // Stop journaling changes until the next save(), which then waits for its snapshot to be
+    // written. For bulk changes that end in a save anyway: the journal would only buffer records
+    // the snapshot makes redundant. persist() saves a snapshot while the journal is paused.
+    public void pauseJournal() {
+        journalPaused = true;
+    }
+
+    private boolean journaling() {
+        return journal != null && !journalPaused;
+    }
+
+    // Ship changes to followers from now on, starting them off from the board as it is;
+    // null stops shipping
+    public void setReplication(ReplicationLeader replication) {
+        this.replication = replication;
+        if (replication != null) {
+            replication.restart(this);
+        }
+    }
+
+    public ReplicationLeader getReplication() {
+        return replication;
+    }
+
+    // Keep up to `limit` steps of undo history; 0 (the default) records nothing. Each step is
+    // every change made between two checkpoints.
+    public void setUndoLimit(int limit) {
+        // a step keeps the columns as they were, which columnar storage can't share
+        undoLimit = columnar != null ? 0 : Math.max(0, limit);
+        if (undoLimit == 0) {
+            clearHistory();
+        }
+        trim(undoSteps);
+        trim(redoSteps);
+    }
+
+    public int getUndoLimit() {
+        return undoLimit;
+    }
+
+    // Columnar mode keeps the tasks in primitive arrays and one UTF-8 arena (see ColumnarBoard)
+    // instead of Task objects, for boards too large to hold otherwise. Everything reads and
+    // changes the board as usual, through flyweight Task views, but there is no undo history
+    // and sorted listings sort a copy each time.
+    public void setColumnar(boolean on) {
+        if (on == (columnar != null)) {
+            return;
+        }
+        SaveData data = toSaveData();
+        if (on) {
+            // switches the mode; rebuild() fills it
+            columnar = new ColumnarBoard();
+            setUndoLimit(0);
+            rebuild(data.getTodo(), data.getDoing(), data.getDone());
+        } else {
+            // plain copies, so the vectors don't keep the arena alive
+            columnar = null;
+            rebuild(plainCopy(data.getTodo()), plainCopy(data.getDoing()), plainCopy(data.getDone()));
+        }
+    }
+
+    public boolean isColumnar() {
+        return columnar != null;
+    }
+
+    // rough heap footprint of the id index and of the sorted views and text index, if built
+    public long estimateIndexBytes() {
+        long bytes = index.estimateBytes();
+        if (sortedViews != null) {
+            bytes += sortedViews.estimateBytes();
+        }
+        if (textIndex != null) {
+            bytes += textIndex.estimateBytes();
+        }
+        return bytes;
+    }
+
+    // rough heap footprint of the columnar storage, tasks and text included; 0 when not columnar
+    public long estimateColumnarBytes() {
+        return columnar == null ? 0 : columnar.estimateBytes();
+    }
+
+    private static List<Task> plainCopy(List<Task> tasks) {
+        List<Task> copy = new ArrayList<>(tasks.size());
+        for (Task t : tasks) {
+            copy.add(new Task(t.getId(), t.getTitle(), t.getDescription(), t.getPriority()));
+        }
+        return copy;
+    }
+
+    // End the current undo step. The REPL calls this before each command, so undo takes back
+    // one command at a time.
+    public void checkpoint() {
+        if (step != null) {
+            undoSteps.push(step);
+            trim(undoSteps);
+            step = null;
+        }
+    }
+
+    // Put the board back as it was before the last step. Returns false when there is nothing
+    // to undo.
+    public boolean undo() {
+        checkpoint();
+        UndoStep target = undoSteps.poll();
+        if (target == null) {
+            return false;
+        }
+        redoSteps.push(restore(target));
+        trim(redoSteps);
+        return true;
+    }
+
+    // Make the last undone step again, if nothing has changed since it was undone.
+    public boolean redo() {
+        checkpoint();
+        UndoStep target = redoSteps.poll();
+        if (target == null) {
+            return false;
+        }
+        undoSteps.push(restore(target));
+        trim(undoSteps);
+        return true;
+    }
+
+    // remember where the task was before the change about to be made, the first time it changes in a step
+    private void noteChange(long id) {
+        if (undoLimit == 0) {
+            return;
+        }
+        if (step == null) {
+            freeze();
+            step = new UndoStep(todo, doing, done);
+            redoSteps.clear();
+        }
+        if (!step.before.containsKey(id)) {
+            step.before.put(id, entryOf(id));
+        }
+    }
+
+    // Switch back to the columns saved in the step and fix the indexes up for the tasks it
+    // changed, so this costs O(changes) rather than O(tasks). Returns the step that reverses it.
+    private UndoStep restore(UndoStep target) {
+        freeze();
+        UndoStep reverse = new UndoStep(todo, doing, done);
+        for (Map.Entry<Long, IndexEntry> e : target.before.entrySet()) {
+            long id = e.getKey();
+            IndexEntry now = entryOf(id);
+            reverse.before.put(id, now);
+            if (now != null) {
+                if (sortedViews != null) {
+                    sortedViews.remove(now.task, now.column);
+                }
+                if (textIndex != null) {
+                    textIndex.remove(now.task);
+                }
+                index.remove(id);
+            }
+            IndexEntry then = e.getValue();
+            if (then != null) {
+                index.put(then.task, then.column, then.slot);
+                if (sortedViews != null) {
+                    sortedViews.add(then.task, then.column);
+                }
+                if (textIndex != null) {
+                    textIndex.add(then.task);
+                }
+            }
+        }
+        todo = target.todo;
+        doing = target.doing;
+        done = target.done;
+
+        dirty = true;
+        // journal records can't put a task back in the middle of a column, so the next
+        // persist() writes a snapshot, and followers start over from the restored board
+        journal = null;
+        if (replication != null) {
+            replication.restart(this);
+        }
+        return reverse;
+    }
+
+    private IndexEntry entryOf(long id) {
+        Task t = index.get(id);
+        return t == null ? null : new IndexEntry(t, index.column(id), index.position(id));
+    }
+
+    private void trim(ArrayDeque<UndoStep> steps) {
+        while (steps.size() > undoLimit) {
+            steps.removeLast();
+        }
+    }
+
+    private void clearHistory() {
+        step = null;
+        undoSteps.clear();
+        redoSteps.clear();
+    }
+
+    // whether the board has changes that haven't been saved or persisted yet
+    public boolean isDirty() {
+        return dirty;
+    }
+
+    public long getJournalCompactionBytes() {
+        return journalCompactionBytes;
+    }
+
+    // set how large the journal may grow before persist() folds it into a new snapshot
+    public void setJournalCompactionBytes(long journalCompactionBytes) {
+        this.journalCompactionBytes = journalCompactionBytes;
+    }
 
     public long getMaxId() {
         long maxId = 0;
 
         for (Column col : Column.values()) {
-            List<Task> list = get(col);
-
-            for (Task t : list) {
+            for (Task t : tasks(col)) {
                 if (t.getId() > maxId) {
                     maxId = t.getId();
                 }
@@ -181,33 +1164,172 @@ public class Board {
     }
 
     public boolean load() {
-        Gson gson = new Gson();
-        Path path = Paths.get(getSaveFilePath());
-        try (Reader reader = Files.newBufferedReader(path, java.nio.charset.StandardCharsets.UTF_8)) {
-            SaveData data = gson.fromJson(reader, SaveData.class);
-            loadFrom(data);
-            nextId = getMaxId() + 1;
+        // a snapshot commit still in flight would trim the journal underneath the replay
+        pendingSave().join();
+        long start = Metrics.start();
+        journal = null;
+        Path path = findSnapshotPath();
+        try {
+            SaveData data = readSnapshot(path, compressionBufferSize);
+            if (data == null) {
+                return false;
+            }
+            // replay changes made since the snapshot, then keep appending to the same journal;
+            // decoded first, so a corrupt journal fails the load with the board left as it was
+            Path journalPath = getJournalPath();
+            List<BoardJournal.Record> records = BoardJournal.read(journalPath);
+            adopt(data);
+
+            long replayedMaxId = BoardJournal.replay(records, this);
+            // older snapshots don't store the next id; fall back to the highest id seen while decoding
+            long snapshotNextId = data.getNextId() >= 0 ? data.getNextId() : data.getMaxId() + 1;
+            nextId = Math.max(snapshotNextId, replayedMaxId + 1);
+            journal = BoardJournal.open(journalPath);
+            dirty = false;
+            // the replayed changes were made before this session
+            clearHistory();
+            if (replication != null) {
+                replication.restart(this);
+            }
+            LOAD_TIME.recordSince(start);
+            return true;
+        } catch (IOException e) {
+            return false;
+        } finally {
+            attachIds();
+        }
+    }
+
+    // point the id allocator at this board's lease file; reopened when the board is renamed
+    private void attachIds() {
+        Path idsPath = getIdsPath();
+        if (ids != null && ids.getPath().equals(idsPath)) {
+            return;
+        }
+        long floor = getNextId();
+        releaseIds();
+        ids = IdAllocator.open(idsPath, floor);
+    }
+
+    // Return leased ids this process hasn't used, so a board that is closed and reopened keeps
+    // dense ids. Call when the board won't add any more tasks.
+    public boolean releaseIds() {
+        if (ids == null) {
+            return true;
+        }
+        try {
+            ids.release();
             return true;
         } catch (IOException e) {
             return false;
         }
     }
 
+    IdAllocator getIdAllocator() {
+        return ids;
+    }
+
+    // The newest snapshot of this board in any format. A save deletes the other formats' files
+    // once its own has committed, so normally only one exists; if a crash left two, the older one
+    // is stale and the journal was trimmed against the newer, so the configured format must not win.
+    private Path findSnapshotPath() {
+        Path preferred = Paths.get(getSaveFilePath());
+        Path newest = null;
+        FileTime newestTime = null;
+        for (Path candidate : snapshotPaths()) {
+            try {
+                FileTime time = Files.getLastModifiedTime(candidate);
+                if (newest == null || time.compareTo(newestTime) > 0
+                        || (time.equals(newestTime) && candidate.equals(preferred))) {
+                    newest = candidate;
+                    newestTime = time;
+                }
+            } catch (IOException e) {
+                // missing in this format
+            }
+        }
+        return newest != null ? newest : preferred;
+    }
+
+    // where this board's snapshot would be in each format
+    private List<Path> snapshotPaths() {
+        List<Path> paths = new ArrayList<>();
+        for (SnapshotFormat format : SnapshotFormat.values()) {
+            paths.add(Paths.get(getSaveDir(), getFileStem() + format.extension()));
+        }
+        return paths;
+    }
+
+    // the format is picked from the file's magic number, not its extension
+    private static SaveData readSnapshot(Path path, int bufferSize) throws IOException {
+        if (isGzip(path)) {
+            // inflated straight into the JSON reader, like the write
+            try (JsonReader reader = new JsonReader(new InputStreamReader(
+                    new GZIPInputStream(Files.newInputStream(path), bufferSize), StandardCharsets.UTF_8))) {
+                return SAVE_DATA_ADAPTER.read(reader);
+            }
+        }
+        if (BinarySnapshot.isBinary(path)) {
+            return BinarySnapshot.read(path);
+        }
+        try (JsonReader reader = new JsonReader(Files.newBufferedReader(path, StandardCharsets.UTF_8))) {
+            return SAVE_DATA_ADAPTER.read(reader);
+        }
+    }
+
+    // true when the file starts with the gzip magic number
+    private static boolean isGzip(Path path) throws IOException {
+        byte[] head = new byte[2];
+        try (InputStream in = Files.newInputStream(path)) {
+            if (in.readNBytes(head, 0, head.length) < head.length) {
+                return false;
+            }
+        }
+        return head[0] == (byte) 0x1f && head[1] == (byte) 0x8b;
+    }
+
+    public SnapshotFormat getSnapshotFormat() {
+        return snapshotFormat;
+    }
+
+    // choose how save() writes snapshots; load() reads any format
+    public void setSnapshotFormat(SnapshotFormat snapshotFormat) {
+        this.snapshotFormat = snapshotFormat;
+    }
+
+    public int getCompressionLevel() {
+        return compressionLevel;
+    }
+
+    public int getCompressionBufferSize() {
+        return compressionBufferSize;
+    }
+
+    // Deflater level (0-9, or -1 for zlib's default) and the gzip buffer size in bytes, used by
+    // the GZIP format; the buffer size also applies when reading a compressed snapshot
+    public void setCompression(int level, int bufferSize) {
+        if (level < Deflater.DEFAULT_COMPRESSION || level > Deflater.BEST_COMPRESSION || bufferSize <= 0) {
+            throw new IllegalArgumentException("Invalid compression level " + level + " or buffer size " + bufferSize);
+        }
+        this.compressionLevel = level;
+        this.compressionBufferSize = bufferSize;
+    }
+
     public List<Task> getTodo() {
-        return todo;
+        return get(Column.TODO);
     }
 
     public List<Task> getDoing() {
-        return doing;
+        return get(Column.DOING);
     }
 
     public List<Task> getDone() {
-        return done;
+        return get(Column.DONE);
     }
 
     // simple getter method for seeing what the next id will be
     public long getNextId() {
-        return nextId;
+        return ids == null ? nextId : Math.max(nextId, ids.peek());
     }
 
     public void setNextId() {
@@ -216,6 +1338,17 @@ public class Board {
 
     // method to assign a task an id, then increase the global nextId count
     public long nextId() {
+        if (ids != null) {
+            try {
+                long id = ids.next();
+                nextId = Math.max(nextId, id + 1);
+                return id;
+            } catch (UncheckedIOException e) {
+                // the lease file can't be used; count locally like a board that was never saved
+                ids = null;
+            }
+        }
+
         long nextId = getNextId();
 
         setNextId();
@@ -236,11 +1369,16 @@ public class Board {
 
     // return a filename to save from the board's name
     public String getSaveFilename() {
+        return getFileStem() + snapshotFormat.extension();
+    }
+
+    // board name used as the base of every file that belongs to this board
+    private String getFileStem() {
         if (getBoardName().isEmpty()) {
-            return "board.json";
+            return "board";
         }
 
-        return this.boardName + ".json";
+        return this.boardName;
     }
 
     // return a filepath to save a board to using the board's current directory and filename
@@ -248,6 +1386,20 @@ public class Board {
         return Paths.get(getSaveDir(), getSaveFilename()).toString();
     }
 
+    // the journal lives next to the snapshot: boards/<name>.journal
+    public Path getJournalPath() {
+        return Paths.get(getSaveDir(), getFileStem() + BoardJournal.EXTENSION);
+    }
+
+    // leased id high-water mark: boards/<name>.ids
+    public Path getIdsPath() {
+        return Paths.get(getSaveDir(), getFileStem() + IdAllocator.EXTENSION);
+    }
+
+    public Path getExportPath() {
+        return Paths.get(getSaveDir(), getFileStem() + "-export.json");
+    }
+
     public String getBoardName() {
         return boardName;
     }
@@ -261,6 +1413,31 @@ public class Board {
         return true;
     }
 
+    // The columns as they were before a group of changes, and where each task the changes
+    // touched was then (null for one that wasn't on the board). The columns share everything
+    // with the board except the nodes changed since.
+    private static final class UndoStep {
+        final TaskVector todo;
+        final TaskVector doing;
+        final TaskVector done;
+        final Map<Long, IndexEntry> before = new HashMap<>();
 
+        UndoStep(TaskVector todo, TaskVector doing, TaskVector done) {
+            this.todo = todo;
+            this.doing = doing;
+            this.done = done;
+        }
+    }
+
+    private static final class IndexEntry {
+        final Task task;
+        final Column column;
+        final int slot;
 
+        IndexEntry(Task task, Column column, int slot) {
+            this.task = task;
+            this.column = column;
+            this.slot = slot;
+        }
+    }
 }
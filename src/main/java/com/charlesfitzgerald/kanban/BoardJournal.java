@@ -0,0 +1,343 @@
+package com.charlesfitzgerald.kanban;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+// Append-only log of board mutations that sits next to a JSON snapshot.
+// Records are buffered in memory as they happen and written out by flush(), so persisting
+// a change costs the size of the change instead of the size of the board.
+//
+// Record layout: op byte, id (long), then per op:
+//   ADD    column byte, priority int, title, description
+//   EDIT   priority int, title, description
+//   MOVE   column byte
+//   DELETE (nothing else)
+// Strings are an int byte length (-1 for null) followed by UTF-8 bytes.
+//
+// Methods that touch the buffer or the file are synchronized because the background saver
+// trims the journal after a snapshot commits while the REPL keeps recording changes.
+//
+// ReplicationLeader ships changes to followers in the same record format, so the encoding
+// and Record decoding are shared with it.
+public class BoardJournal {
+    public static final String EXTENSION = ".journal";
+
+    private static final byte ADD = 'A';
+    private static final byte EDIT = 'E';
+    private static final byte MOVE = 'M';
+    private static final byte DELETE = 'D';
+    private static final Column[] COLUMNS = Column.values();
+
+    private final Path path;
+    private final ByteArrayOutputStream pendingBytes = new ByteArrayOutputStream();
+    // its size() counts every byte ever written and isn't cleared by a flush, so buffered
+    // sizes come from pendingBytes
+    private final DataOutputStream pending = new DataOutputStream(pendingBytes);
+    private long flushedSize;
+    // bytes trimmed off the front of the file by discardUpTo since this journal was opened
+    private long discarded;
+
+    private BoardJournal(Path path, long flushedSize) {
+        this.path = path;
+        this.flushedSize = flushedSize;
+    }
+
+    // open an existing journal for appending, or start an empty one if the file doesn't exist
+    public static BoardJournal open(Path path) throws IOException {
+        return new BoardJournal(path, Files.exists(path) ? Files.size(path) : 0);
+    }
+
+    // start a fresh journal, discarding whatever the file held before
+    public static BoardJournal reset(Path path) throws IOException {
+        Files.deleteIfExists(path);
+        return new BoardJournal(path, 0);
+    }
+
+    public Path getPath() {
+        return path;
+    }
+
+    // bytes on disk plus bytes still waiting to be flushed
+    public synchronized long size() {
+        return flushedSize + pendingBytes.size();
+    }
+
+    // Position just past the last record, counted from when the journal was opened rather than
+    // from the start of the file, so it still names the same record after earlier trims. This
+    // is what discardUpTo takes: a snapshot can commit after another one has already trimmed.
+    public synchronized long end() {
+        return discarded + size();
+    }
+
+    // bytes recorded since the last flush
+    public synchronized long pendingBytes() {
+        return pendingBytes.size();
+    }
+
+    public synchronized void recordAdd(Task t, Column col) {
+        writeAdd(pending, t, col);
+    }
+
+    public synchronized void recordEdit(Task t) {
+        writeEdit(pending, t);
+    }
+
+    public synchronized void recordMove(long id, Column to) {
+        writeMove(pending, id, to);
+    }
+
+    public synchronized void recordRemove(long id) {
+        writeRemove(pending, id);
+    }
+
+    // The write* methods encode one record; they are only used with in-memory streams, so an
+    // IOException can't happen.
+    static void writeAdd(DataOutputStream out, Task t, Column col) {
+        try {
+            out.writeByte(ADD);
+            out.writeLong(t.getId());
+            out.writeByte(col.ordinal());
+            out.writeInt(t.getPriority());
+            writeString(out, t.getTitle());
+            writeString(out, t.getDescription());
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    static void writeEdit(DataOutputStream out, Task t) {
+        try {
+            out.writeByte(EDIT);
+            out.writeLong(t.getId());
+            out.writeInt(t.getPriority());
+            writeString(out, t.getTitle());
+            writeString(out, t.getDescription());
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    static void writeMove(DataOutputStream out, long id, Column to) {
+        try {
+            out.writeByte(MOVE);
+            out.writeLong(id);
+            out.writeByte(to.ordinal());
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    static void writeRemove(DataOutputStream out, long id) {
+        try {
+            out.writeByte(DELETE);
+            out.writeLong(id);
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    // One decoded record. Applying is idempotent: adds of ids already on the board are skipped
+    // and edits of missing tasks are ignored, while moves and deletes converge on their own.
+    public static class Record {
+        final byte op;
+        final long id;
+        final Column column;
+        final int priority;
+        final String title;
+        final String description;
+
+        private Record(byte op, long id, Column column, int priority, String title, String description) {
+            this.op = op;
+            this.id = id;
+            this.column = column;
+            this.priority = priority;
+            this.title = title;
+            this.description = description;
+        }
+
+        // Decodes the record at the buffer's position and moves past it. Throws
+        // BufferUnderflowException when the buffer ends partway through a record, and
+        // IOException when the record can't be one this class wrote.
+        public static Record read(ByteBuffer buf) throws IOException {
+            int start = buf.position();
+            byte op = buf.get();
+            long id = buf.getLong();
+            return switch (op) {
+                case ADD -> {
+                    Column col = readColumn(buf, start);
+                    int priority = buf.getInt();
+                    String title = readString(buf);
+                    yield new Record(op, id, col, priority, title, readString(buf));
+                }
+                case EDIT -> {
+                    int priority = buf.getInt();
+                    String title = readString(buf);
+                    yield new Record(op, id, null, priority, title, readString(buf));
+                }
+                case MOVE -> new Record(op, id, readColumn(buf, start), 0, null, null);
+                case DELETE -> new Record(op, id, null, 0, null, null);
+                default -> throw new IOException("Corrupt journal record at byte " + start);
+            };
+        }
+
+        private static Column readColumn(ByteBuffer buf, int start) throws IOException {
+            int ordinal = buf.get();
+            if (ordinal < 0 || ordinal >= COLUMNS.length) {
+                throw new IOException("Corrupt journal record at byte " + start + ": no column " + ordinal);
+            }
+            return COLUMNS[ordinal];
+        }
+
+        // id of the task an ADD record creates, or -1 for other records
+        public long addedId() {
+            return op == ADD ? id : -1;
+        }
+
+        public void applyTo(Board board) {
+            switch (op) {
+                case ADD -> {
+                    if (board.find(id) == null) {
+                        board.add(new Task(id, title, description, priority), column);
+                    }
+                }
+                case EDIT -> {
+                    Task t = board.find(id);
+                    if (t != null) {
+                        board.edit(t, title, description, priority);
+                    }
+                }
+                case MOVE -> board.move(id, column);
+                default -> board.remove(id);
+            }
+        }
+
+        public void applyTo(ConcurrentBoard board) {
+            switch (op) {
+                case ADD -> {
+                    if (board.find(id) == null) {
+                        board.add(new Task(id, title, description, priority), column);
+                    }
+                }
+                case EDIT -> board.edit(id, title, description, priority);
+                case MOVE -> board.move(id, column);
+                default -> board.remove(id);
+            }
+        }
+    }
+
+    // append every buffered record to the journal file
+    public synchronized void flush() throws IOException {
+        if (pendingBytes.size() == 0) {
+            return;
+        }
+
+        Path parent = path.getParent();
+        if (parent != null) {
+            Files.createDirectories(parent);
+        }
+
+        try (OutputStream out = Files.newOutputStream(path, StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.APPEND)) {
+            pendingBytes.writeTo(out);
+        }
+        flushedSize += pendingBytes.size();
+        pendingBytes.reset();
+    }
+
+    // Drop the records before `end` (a value of end()) once a snapshot containing them has been
+    // committed. Only the records written after the snapshot was taken are rewritten, so this
+    // stays cheap.
+    public synchronized void discardUpTo(long end) throws IOException {
+        long offset = end - discarded;
+        if (offset <= 0 || !Files.exists(path)) {
+            return;
+        }
+
+        byte[] all = Files.readAllBytes(path);
+        int from = (int) Math.min(offset, all.length);
+        if (from == all.length) {
+            Files.delete(path);
+        } else {
+            AtomicFile.write(path, out -> out.write(all, from, all.length - from));
+        }
+        flushedSize = all.length - from;
+        discarded += from;
+    }
+
+    // Decodes every complete record in the journal file, oldest first. A torn record at the
+    // end, left by a crash mid-append, is cut off so later appends start on a record boundary.
+    // Nothing is applied here, so a corrupt journal is found before the board is touched.
+    public static List<Record> read(Path path) throws IOException {
+        List<Record> records = new ArrayList<>();
+        if (!Files.exists(path)) {
+            return records;
+        }
+
+        ByteBuffer buf = ByteBuffer.wrap(Files.readAllBytes(path));
+        int lastGood = 0;
+
+        try {
+            while (buf.hasRemaining()) {
+                try {
+                    records.add(Record.read(buf));
+                } catch (IOException e) {
+                    throw new IOException(e.getMessage() + " in " + path, e);
+                }
+                lastGood = buf.position();
+            }
+        } catch (BufferUnderflowException e) {
+            try (FileChannel ch = FileChannel.open(path, StandardOpenOption.WRITE)) {
+                ch.truncate(lastGood);
+            }
+        }
+
+        return records;
+    }
+
+    // Applies records from read() to the board and returns the highest task id they add (-1 if
+    // none). Replay is idempotent: a snapshot written just before a crash may already contain
+    // some of the records, so adds of existing ids are skipped and moves/edits/deletes simply
+    // converge.
+    public static long replay(List<Record> records, Board board) {
+        long maxId = -1;
+        for (Record record : records) {
+            record.applyTo(board);
+            maxId = Math.max(maxId, record.addedId());
+        }
+        return maxId;
+    }
+
+    private static void writeString(DataOutputStream out, String s) throws IOException {
+        if (s == null) {
+            out.writeInt(-1);
+            return;
+        }
+        byte[] bytes = s.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    private static String readString(ByteBuffer buf) {
+        int len = buf.getInt();
+        if (len < 0) {
+            return null;
+        }
+        if (len > buf.remaining()) {
+            throw new BufferUnderflowException();
+        }
+        String s = new String(buf.array(), buf.position(), len, StandardCharsets.UTF_8);
+        buf.position(buf.position() + len);
+        return s;
+    }
+}
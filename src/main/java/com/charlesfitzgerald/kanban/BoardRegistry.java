@@ -0,0 +1,212 @@
+package com.charlesfitzgerald.kanban;
+
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+
+// Opens boards in one save directory by name and keeps the most recently used ones in memory.
+//
+// Boards are loaded the first time they are opened. Resident boards are kept in access order,
+// and when their estimated heap size goes over the budget the least recently used ones are
+// dropped. A dirty board is persisted before it is dropped, so nothing is lost. The board that
+// was opened last always stays resident, even when it alone is over the budget.
+public class BoardRegistry {
+    // rough per-object costs on a 64-bit JVM with compressed oops; see HeapEstimate
+    private static final long BOARD_OVERHEAD_BYTES = 1024;
+    private static final long TASK_OVERHEAD_BYTES = 72;
+
+    private final String saveDir;
+    private final long heapBudgetBytes;
+    private SnapshotFormat snapshotFormat = SnapshotFormat.JSON;
+    private int compressionLevel = Board.DEFAULT_COMPRESSION_LEVEL;
+    private int compressionBufferSize = Board.DEFAULT_COMPRESSION_BUFFER_SIZE;
+    private boolean columnar;
+
+    // board name -> resident board, least recently used first
+    private final LinkedHashMap<String, Resident> resident = new LinkedHashMap<>(16, 0.75f, true);
+    private long residentBytes;
+    private String current;
+
+    private static class Resident {
+        final Board board;
+        long bytes;
+
+        Resident(Board board) {
+            this.board = board;
+            this.bytes = estimateBytes(board);
+        }
+    }
+
+    public BoardRegistry(String saveDir, long heapBudgetBytes) {
+        this.saveDir = saveDir;
+        this.heapBudgetBytes = heapBudgetBytes;
+    }
+
+    public void setSnapshotFormat(SnapshotFormat snapshotFormat) {
+        this.snapshotFormat = snapshotFormat;
+    }
+
+    // see Board.setCompression
+    public void setCompression(int level, int bufferSize) {
+        this.compressionLevel = level;
+        this.compressionBufferSize = bufferSize;
+    }
+
+    // see Board.setColumnar
+    public void setColumnar(boolean columnar) {
+        this.columnar = columnar;
+    }
+
+    // The board with this name, loading it (or starting an empty one) if it isn't resident.
+    // Returns null for names a board can't have.
+    public Board open(String name) {
+        Board board = new Board();
+        if (!board.setBoardName(name)) {
+            return null;
+        }
+        name = board.getBoardName();
+
+        remeasureCurrent();
+        Resident entry = resident.get(name);
+        if (entry == null) {
+            board.setSaveDir(saveDir);
+            board.setSnapshotFormat(snapshotFormat);
+            board.setCompression(compressionLevel, compressionBufferSize);
+            board.setColumnar(columnar);
+            board.load();
+            // the file may carry a different name; keep the board tied to the file it came from
+            board.setBoardName(name);
+            entry = new Resident(board);
+            resident.put(name, entry);
+            residentBytes += entry.bytes;
+        }
+        current = name;
+        evict();
+        return entry.board;
+    }
+
+    // Track a board that was created or loaded elsewhere. Also used after a board is renamed,
+    // so it is found under its new name.
+    public void add(Board board) {
+        Iterator<Map.Entry<String, Resident>> it = resident.entrySet().iterator();
+        while (it.hasNext()) {
+            Resident entry = it.next().getValue();
+            if (entry.board == board) {
+                residentBytes -= entry.bytes;
+                it.remove();
+            }
+        }
+
+        Resident entry = new Resident(board);
+        Resident replaced = resident.put(board.getBoardName(), entry);
+        if (replaced != null) {
+            residentBytes -= replaced.bytes;
+        }
+        residentBytes += entry.bytes;
+        current = board.getBoardName();
+        evict();
+    }
+
+    public boolean isResident(String name) {
+        return resident.containsKey(name);
+    }
+
+    // resident boards, least recently used first
+    public List<String> residentNames() {
+        return new ArrayList<>(resident.keySet());
+    }
+
+    public long getResidentBytes() {
+        return residentBytes;
+    }
+
+    // every board in the save directory plus any resident board that hasn't been saved yet
+    public List<String> listBoards() {
+        TreeSet<String> names = new TreeSet<>(resident.keySet());
+        Path dir = Paths.get(saveDir);
+        if (Files.isDirectory(dir)) {
+            try (DirectoryStream<Path> files = Files.newDirectoryStream(dir)) {
+                for (Path file : files) {
+                    String fileName = file.getFileName().toString();
+                    for (SnapshotFormat format : SnapshotFormat.values()) {
+                        if (fileName.endsWith(format.extension()) && !fileName.endsWith("-export.json")) {
+                            names.add(fileName.substring(0, fileName.length() - format.extension().length()));
+                        }
+                    }
+                }
+            } catch (IOException e) {
+                // list what is resident
+            }
+        }
+        return new ArrayList<>(names);
+    }
+
+    // Persist every dirty board and stop their background savers. Returns false if any failed.
+    public boolean close() {
+        boolean ok = true;
+        for (Resident entry : resident.values()) {
+            ok &= writeBack(entry.board);
+        }
+        return ok;
+    }
+
+    // Only the current board is changed between opens, so it is the only size that can be stale.
+    private void remeasureCurrent() {
+        Resident entry = current == null ? null : resident.get(current);
+        if (entry != null) {
+            long bytes = estimateBytes(entry.board);
+            residentBytes += bytes - entry.bytes;
+            entry.bytes = bytes;
+        }
+    }
+
+    private void evict() {
+        Iterator<Map.Entry<String, Resident>> it = resident.entrySet().iterator();
+        while (residentBytes > heapBudgetBytes && it.hasNext()) {
+            Map.Entry<String, Resident> eldest = it.next();
+            if (eldest.getKey().equals(current)) {
+                continue;
+            }
+            // a board that can't be written back stays in memory rather than losing its changes
+            if (writeBack(eldest.getValue().board)) {
+                residentBytes -= eldest.getValue().bytes;
+                it.remove();
+            }
+        }
+    }
+
+    private static boolean writeBack(Board board) {
+        boolean ok = !board.isDirty() || board.persist();
+        ok &= board.stopBackgroundSaver();
+        board.releaseIds();
+        return ok;
+    }
+
+    // Rough heap footprint of a board: its tasks and their strings, or in columnar mode the
+    // arrays and arena holding them, plus the id index, sorted views and text index. The views
+    // and text index are built on first use, so a board grows when it is first sorted or searched.
+    static long estimateBytes(Board board) {
+        long bytes = BOARD_OVERHEAD_BYTES + board.estimateIndexBytes();
+        if (board.isColumnar()) {
+            return bytes + board.estimateColumnarBytes();
+        }
+        for (Column col : Column.values()) {
+            for (Task t : board.get(col)) {
+                bytes += TASK_OVERHEAD_BYTES + HeapEstimate.string(t.getTitle());
+                // a description still in a mapped snapshot costs no heap
+                if (!(t instanceof LazyTask lazy && lazy.isDescriptionMapped())) {
+                    bytes += HeapEstimate.string(t.getDescription());
+                }
+            }
+        }
+        return bytes;
+    }
+}
@@ -0,0 +1,75 @@
+package com.charlesfitzgerald.kanban;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+// Runs board writes on a dedicated background thread. A request that arrives while an earlier
+// one is still queued replaces it, so a burst of saves turns into a single write of the latest
+// state and every caller in the burst shares the same future.
+public class BoardSaver {
+    private final ExecutorService executor;
+    private final Object lock = new Object();
+    private Callable<Boolean> queuedWrite;
+    private CompletableFuture<Boolean> queuedResult;
+    private CompletableFuture<Boolean> lastResult = CompletableFuture.completedFuture(true);
+
+    public BoardSaver() {
+        this.executor = Executors.newSingleThreadExecutor(r -> {
+            Thread t = new Thread(r, "board-saver");
+            t.setDaemon(true);
+            return t;
+        });
+    }
+
+    public CompletableFuture<Boolean> submit(Callable<Boolean> write) {
+        synchronized (lock) {
+            if (queuedResult != null) {
+                queuedWrite = write;
+                return queuedResult;
+            }
+
+            queuedWrite = write;
+            queuedResult = new CompletableFuture<>();
+            lastResult = queuedResult;
+            executor.execute(this::runQueued);
+            return queuedResult;
+        }
+    }
+
+    // future of the most recently requested write (already complete if nothing was ever queued)
+    public CompletableFuture<Boolean> lastResult() {
+        synchronized (lock) {
+            return lastResult;
+        }
+    }
+
+    // finish queued writes, then stop the writer thread
+    public void shutdown() {
+        executor.shutdown();
+        try {
+            executor.awaitTermination(1, TimeUnit.MINUTES);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void runQueued() {
+        Callable<Boolean> write;
+        CompletableFuture<Boolean> result;
+        synchronized (lock) {
+            write = queuedWrite;
+            result = queuedResult;
+            queuedWrite = null;
+            queuedResult = null;
+        }
+
+        try {
+            result.complete(write.call());
+        } catch (Exception e) {
+            result.complete(false);
+        }
+    }
+}
@@ -0,0 +1,366 @@
+package com.charlesfitzgerald.kanban;
+
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParseException;
+import com.google.gson.JsonParser;
+import com.google.gson.stream.JsonWriter;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.StringWriter;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+// Serves one board as JSON over the JDK's built-in HttpServer, one virtual thread per request.
+// Requests work against a ConcurrentBoard copy of the loaded board; the original Board is only
+// used to write snapshots when /save is called.
+//
+//   GET    /tasks?col=todo[&by=priority][&desc=true][&limit=N][&offset=N]
+//   POST   /tasks              {"title", "description", "priority", "column"}
+//   GET    /tasks/{id}
+//   PUT    /tasks/{id}         any of {"title", "description", "priority"}
+//   POST   /tasks/{id}/move    {"column"}
+//   DELETE /tasks/{id}
+//   POST   /save
+//
+// A replication follower serves its replica read-only: only the GET requests are answered,
+// and the replica is swapped out whenever the follower takes a fresh snapshot.
+public class BoardServer {
+    private volatile ConcurrentBoard board;
+    private final Board persistence;
+    private final Object saveLock = new Object();
+    private volatile boolean readOnly;
+    private HttpServer server;
+    private ExecutorService executor;
+
+    public BoardServer(Board board) {
+        this.persistence = board;
+        this.board = ConcurrentBoard.copyOf(board);
+    }
+
+    // serve an existing concurrent board; /save writes it through `persistence`
+    public BoardServer(ConcurrentBoard board, Board persistence) {
+        this.persistence = persistence;
+        this.board = board;
+    }
+
+    public void setBoard(ConcurrentBoard board) {
+        this.board = board;
+    }
+
+    // when set, everything but GET is refused with 403
+    public void setReadOnly(boolean readOnly) {
+        this.readOnly = readOnly;
+    }
+
+    // binds to the loopback interface; port 0 picks a free port
+    public InetSocketAddress start(int port) throws IOException {
+        server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), port), 0);
+        executor = Executors.newVirtualThreadPerTaskExecutor();
+        server.setExecutor(executor);
+        server.createContext("/", this::handle);
+        server.start();
+        return server.getAddress();
+    }
+
+    public void stop() {
+        if (server != null) {
+            server.stop(1);
+            executor.close();
+            server = null;
+        }
+    }
+
+    // write the served board to its save file
+    public boolean save() {
+        synchronized (saveLock) {
+            persistence.loadFrom(board.toSaveData());
+            return persistence.save();
+        }
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        try {
+            route(exchange);
+        } catch (BadRequestException e) {
+            sendError(exchange, 400, e.getMessage());
+        } catch (RuntimeException e) {
+            sendError(exchange, 500, "Internal error");
+        } finally {
+            exchange.close();
+        }
+    }
+
+    private void route(HttpExchange exchange) throws IOException {
+        String method = exchange.getRequestMethod();
+        String[] path = exchange.getRequestURI().getPath().replaceAll("^/+|/+$", "").split("/");
+
+        if (readOnly && !method.equals("GET")) {
+            sendError(exchange, 403, "Read-only replica: send changes to the leader");
+            return;
+        }
+
+        if (path.length == 1 && path[0].equals("save") && method.equals("POST")) {
+            boolean saved = save();
+            sendJson(exchange, saved ? 200 : 500, object("saved", saved));
+            return;
+        }
+
+        if (!path[0].equals("tasks")) {
+            sendError(exchange, 404, "Unknown path");
+            return;
+        }
+
+        if (path.length == 1) {
+            switch (method) {
+                case "GET" -> handleList(exchange);
+                case "POST" -> handleAdd(exchange);
+                default -> sendError(exchange, 405, "Method not allowed");
+            }
+            return;
+        }
+
+        long id;
+        try {
+            id = Long.parseLong(path[1]);
+        } catch (NumberFormatException e) {
+            sendError(exchange, 400, "Invalid id");
+            return;
+        }
+
+        if (path.length == 3 && path[2].equals("move") && method.equals("POST")) {
+            handleMove(exchange, id);
+        } else if (path.length == 2) {
+            switch (method) {
+                case "GET" -> handleFind(exchange, id);
+                case "PUT" -> handleEdit(exchange, id);
+                case "DELETE" -> handleDel(exchange, id);
+                default -> sendError(exchange, 405, "Method not allowed");
+            }
+        } else {
+            sendError(exchange, 404, "Unknown path");
+        }
+    }
+
+    private void handleList(HttpExchange exchange) throws IOException {
+        Map<String, String> query = parseQuery(exchange.getRequestURI().getRawQuery());
+        Column col = requireColumn(query.get("col"));
+        SortKey key = null;
+        if (query.containsKey("by")) {
+            key = SortKey.fromFlag(query.get("by"));
+            if (key == null) {
+                throw new BadRequestException("Invalid sort type");
+            }
+        }
+        boolean descending = Boolean.parseBoolean(query.get("desc"));
+        int offset = parseNonNegative(query.get("offset"), 0);
+        int limit = parseNonNegative(query.get("limit"), Integer.MAX_VALUE);
+
+        List<Task> tasks;
+        if (key == null) {
+            tasks = board.get(col);
+        } else if (limit == Integer.MAX_VALUE) {
+            // every task from offset on is sent, so the whole column has to be sorted
+            tasks = board.get(col);
+            tasks.sort(key.comparator(descending));
+        } else {
+            // a page only needs the first offset + limit in order, not the whole column sorted
+            tasks = board.top(col, key, descending, (int) Math.min(Integer.MAX_VALUE, (long) offset + limit));
+        }
+
+        StringWriter body = new StringWriter();
+        JsonWriter out = new JsonWriter(body);
+        out.beginArray();
+        int end = (int) Math.min(tasks.size(), (long) offset + limit);
+        for (int i = offset; i < end; i++) {
+            writeTask(out, tasks.get(i), col);
+        }
+        out.endArray();
+        sendJson(exchange, 200, body.toString());
+    }
+
+    private void handleAdd(HttpExchange exchange) throws IOException {
+        JsonObject json = readBody(exchange);
+        String title = requireString(json, "title");
+        String description = json.has("description") ? requireString(json, "description") : "";
+        int priority = requirePriority(json);
+        Column col = json.has("column") ? requireColumn(requireString(json, "column")) : Column.TODO;
+
+        Task task = new Task(board.nextId(), title, description, priority);
+        board.add(task, col);
+        sendTask(exchange, 201, task, col);
+    }
+
+    private void handleFind(HttpExchange exchange, long id) throws IOException {
+        Task task = board.find(id);
+        Column col = board.getCol(id);
+        if (task == null || col == null) {
+            sendError(exchange, 404, "Task not found");
+            return;
+        }
+        sendTask(exchange, 200, task, col);
+    }
+
+    private void handleEdit(HttpExchange exchange, long id) throws IOException {
+        JsonObject json = readBody(exchange);
+        // validated up front, then merged with the current task under the column's lock, so
+        // two PUTs setting different fields both land
+        String title = json.has("title") ? requireString(json, "title") : null;
+        String description = json.has("description") ? requireString(json, "description") : null;
+        Integer priority = json.has("priority") ? requirePriority(json) : null;
+
+        // fields that are left out keep their current value
+        Task edited = board.edit(id, current -> new Task(id,
+                title != null ? title : current.getTitle(),
+                description != null ? description : current.getDescription(),
+                priority != null ? priority : current.getPriority()));
+        Column col = board.getCol(id);
+        if (edited == null || col == null) {
+            sendError(exchange, 404, "Task not found");
+            return;
+        }
+        sendTask(exchange, 200, edited, col);
+    }
+
+    private void handleMove(HttpExchange exchange, long id) throws IOException {
+        Column to = requireColumn(requireString(readBody(exchange), "column"));
+        if (!board.move(id, to)) {
+            sendError(exchange, 404, "Task not found");
+            return;
+        }
+        handleFind(exchange, id);
+    }
+
+    private void handleDel(HttpExchange exchange, long id) throws IOException {
+        if (!board.remove(id)) {
+            sendError(exchange, 404, "Task not found");
+            return;
+        }
+        sendJson(exchange, 200, object("deleted", true));
+    }
+
+    private static class BadRequestException extends RuntimeException {
+        private static final long serialVersionUID = 1L;
+
+        BadRequestException(String message) {
+            super(message);
+        }
+    }
+
+    private static JsonObject readBody(HttpExchange exchange) {
+        try (InputStreamReader reader = new InputStreamReader(exchange.getRequestBody(), StandardCharsets.UTF_8)) {
+            JsonElement json = JsonParser.parseReader(reader);
+            if (!json.isJsonObject()) {
+                throw new BadRequestException("Request body must be a JSON object");
+            }
+            return json.getAsJsonObject();
+        } catch (JsonParseException | IOException e) {
+            throw new BadRequestException("Malformed JSON body");
+        }
+    }
+
+    private static String requireString(JsonObject json, String field) {
+        JsonElement value = json.get(field);
+        if (value == null || !value.isJsonPrimitive() || !value.getAsJsonPrimitive().isString()) {
+            throw new BadRequestException("'" + field + "' must be a string");
+        }
+        return value.getAsString();
+    }
+
+    private static int requirePriority(JsonObject json) {
+        JsonElement value = json.get("priority");
+        if (value == null || !value.isJsonPrimitive() || !value.getAsJsonPrimitive().isNumber()) {
+            throw new BadRequestException("'priority' must be a number (1-3)");
+        }
+        int priority = value.getAsInt();
+        if (priority < 1 || priority > 3) {
+            throw new BadRequestException("Invalid priority: must be 1, 2, or 3.");
+        }
+        return priority;
+    }
+
+    private static Column requireColumn(String name) {
+        Column col = Column.fromString(name);
+        if (col == null) {
+            throw new BadRequestException("Unknown column: " + name);
+        }
+        return col;
+    }
+
+    private static int parseNonNegative(String value, int fallback) {
+        if (value == null) {
+            return fallback;
+        }
+        try {
+            int parsed = Integer.parseInt(value);
+            if (parsed >= 0) {
+                return parsed;
+            }
+        } catch (NumberFormatException e) {
+            // reported below
+        }
+        throw new BadRequestException("Expected a whole number of 0 or more, got " + value);
+    }
+
+    private static Map<String, String> parseQuery(String rawQuery) {
+        Map<String, String> params = new HashMap<>();
+        if (rawQuery == null || rawQuery.isEmpty()) {
+            return params;
+        }
+        for (String pair : rawQuery.split("&")) {
+            int eq = pair.indexOf('=');
+            String name = URLDecoder.decode(eq < 0 ? pair : pair.substring(0, eq), StandardCharsets.UTF_8);
+            String value = eq < 0 ? "" : URLDecoder.decode(pair.substring(eq + 1), StandardCharsets.UTF_8);
+            params.put(name, value);
+        }
+        return params;
+    }
+
+    private static void writeTask(JsonWriter out, Task t, Column col) throws IOException {
+        out.beginObject();
+        out.name("id").value(t.getId());
+        out.name("title").value(t.getTitle());
+        out.name("description").value(t.getDescription());
+        out.name("priority").value(t.getPriority());
+        out.name("column").value(col.name());
+        out.endObject();
+    }
+
+    private static void sendTask(HttpExchange exchange, int status, Task t, Column col) throws IOException {
+        StringWriter body = new StringWriter();
+        writeTask(new JsonWriter(body), t, col);
+        sendJson(exchange, status, body.toString());
+    }
+
+    private static String object(String name, boolean value) throws IOException {
+        StringWriter body = new StringWriter();
+        new JsonWriter(body).beginObject().name(name).value(value).endObject();
+        return body.toString();
+    }
+
+    private static void sendError(HttpExchange exchange, int status, String message) throws IOException {
+        StringWriter body = new StringWriter();
+        new JsonWriter(body).beginObject().name("error").value(message).endObject();
+        sendJson(exchange, status, body.toString());
+    }
+
+    private static void sendJson(HttpExchange exchange, int status, String json) throws IOException {
+        byte[] bytes = json.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "application/json; charset=utf-8");
+        exchange.sendResponseHeaders(status, bytes.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(bytes);
+        }
+    }
+}
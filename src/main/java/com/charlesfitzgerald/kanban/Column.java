@@ -1,5 +1,17 @@
 package com.charlesfitzgerald.kanban;
 
 public enum Column {
-    TODO, DOING, DONE
+    TODO, DOING, DONE;
+
+    // case-insensitive column name, or null if it doesn't match one
+    public static Column fromString(String input) {
+        if (input == null) return null;
+
+        return switch (input.trim().toLowerCase()) {
+            case "todo" -> TODO;
+            case "doing" -> DOING;
+            case "done" -> DONE;
+            default -> null;
+        };
+    }
 }
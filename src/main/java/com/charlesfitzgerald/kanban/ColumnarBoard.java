@@ -0,0 +1,448 @@
+package com.charlesfitzgerald.kanban;
+
+import java.nio.charset.StandardCharsets;
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+
+// Board storage for very large boards that keeps no Task objects.
+//
+// Each column is a struct of arrays (ids, priorities, text offsets and lengths) and every title
+// and description lives as UTF-8 in one shared byte arena, so a task costs about 21 bytes plus
+// its text and index slot instead of a Task, two Strings, their byte arrays and a list slot.
+// Board keeps its tasks here in columnar mode (see Board.setColumnar).
+//
+// Tasks read from the board are flyweight views: a small object pointing at the row's text in
+// the arena, decoded only when the title or description is asked for. Arena bytes are never
+// overwritten (appends go past the end, growth and compaction copy to a new array), so a view
+// keeps reading the task as it was when the view was made. Setters on a view change only the
+// view; edit() changes the board.
+//
+// The index holds each task's exact row, so find, remove and move are O(1). A removed task's
+// row is marked dead instead of shifting the rows after it, and a column is compacted once its
+// dead rows outnumber the live ones, or when it is listed, since get() counts live rows only.
+// Text of removed and edited tasks likewise stays in the arena until it makes up half of it,
+// then the arena is rebuilt from the live tasks.
+public class ColumnarBoard {
+    private static final Column[] COLUMNS = Column.values();
+    private static final int MIN_ARENA_BYTES = 1 << 16;
+    // title/description length used for null
+    private static final int NULL_LENGTH = -1;
+    // title and description length of a dead row
+    private static final int DEAD_LENGTH = -2;
+
+    private final Map<Column, TaskColumn> columns = new EnumMap<>(Column.class);
+    private final PositionIndex index;
+    private byte[] arena = new byte[MIN_ARENA_BYTES];
+    private int arenaSize;
+    private long garbageBytes;
+    private long nextId;
+    private final String boardName;
+
+    private static class TaskColumn {
+        final Column column;
+        long[] ids;
+        byte[] priorities;
+        int[] textOffsets;
+        int[] titleLengths;
+        int[] descriptionLengths;
+        // rows in use, dead ones included
+        int size;
+        int dead;
+
+        TaskColumn(Column column, int capacity) {
+            this.column = column;
+            capacity = Math.max(capacity, 16);
+            ids = new long[capacity];
+            priorities = new byte[capacity];
+            textOffsets = new int[capacity];
+            titleLengths = new int[capacity];
+            descriptionLengths = new int[capacity];
+        }
+
+        void add(long id, int priority, int textOffset, int titleLength, int descriptionLength) {
+            if (size == ids.length) {
+                int capacity = size + (size >> 1);
+                ids = Arrays.copyOf(ids, capacity);
+                priorities = Arrays.copyOf(priorities, capacity);
+                textOffsets = Arrays.copyOf(textOffsets, capacity);
+                titleLengths = Arrays.copyOf(titleLengths, capacity);
+                descriptionLengths = Arrays.copyOf(descriptionLengths, capacity);
+            }
+            ids[size] = id;
+            priorities[size] = (byte) priority;
+            textOffsets[size] = textOffset;
+            titleLengths[size] = titleLength;
+            descriptionLengths[size] = descriptionLength;
+            size++;
+        }
+
+        void trimToSize() {
+            int capacity = Math.max(size, 16);
+            if (capacity < ids.length) {
+                ids = Arrays.copyOf(ids, capacity);
+                priorities = Arrays.copyOf(priorities, capacity);
+                textOffsets = Arrays.copyOf(textOffsets, capacity);
+                titleLengths = Arrays.copyOf(titleLengths, capacity);
+                descriptionLengths = Arrays.copyOf(descriptionLengths, capacity);
+            }
+        }
+
+        // the row's text no longer belongs to any task here; its index entry must go too
+        void kill(int i) {
+            titleLengths[i] = DEAD_LENGTH;
+            descriptionLengths[i] = DEAD_LENGTH;
+            dead++;
+        }
+
+        int live() {
+            return size - dead;
+        }
+
+        // slide the live rows down over the dead ones and give the index their new rows
+        void compact(PositionIndex index) {
+            int n = 0;
+            for (int i = 0; i < size; i++) {
+                if (titleLengths[i] != DEAD_LENGTH) {
+                    ids[n] = ids[i];
+                    priorities[n] = priorities[i];
+                    textOffsets[n] = textOffsets[i];
+                    titleLengths[n] = titleLengths[i];
+                    descriptionLengths[n] = descriptionLengths[i];
+                    index.put(ids[n], column, n);
+                    n++;
+                }
+            }
+            size = n;
+            dead = 0;
+        }
+
+        int textBytes(int i) {
+            return Math.max(titleLengths[i], 0) + Math.max(descriptionLengths[i], 0);
+        }
+
+        long estimateBytes() {
+            return HeapEstimate.array(ids.length, Long.BYTES) + HeapEstimate.array(priorities.length, 1)
+                    + 3 * HeapEstimate.array(textOffsets.length, Integer.BYTES);
+        }
+    }
+
+    public ColumnarBoard() {
+        this("board", 0, 0);
+    }
+
+    public ColumnarBoard(String boardName, long nextId, int expectedSize) {
+        this(boardName, nextId, new int[] {expectedSize / 3, expectedSize / 3, expectedSize / 3}, expectedSize);
+    }
+
+    private ColumnarBoard(String boardName, long nextId, int[] columnSizes, int expectedSize) {
+        for (Column col : COLUMNS) {
+            columns.put(col, new TaskColumn(col, columnSizes[col.ordinal()]));
+        }
+        this.index = new PositionIndex(expectedSize);
+        this.boardName = boardName;
+        this.nextId = nextId;
+    }
+
+    // Arrays and arena are sized from the data up front, then trimmed, so a loaded board
+    // carries no spare capacity.
+    public static ColumnarBoard fromSaveData(SaveData data) {
+        List<List<Task>> lists = List.of(data.getTodo(), data.getDoing(), data.getDone());
+        int[] columnSizes = new int[COLUMNS.length];
+        long textChars = 0;
+        for (int c = 0; c < COLUMNS.length; c++) {
+            columnSizes[c] = lists.get(c).size();
+            for (Task t : lists.get(c)) {
+                textChars += length(t.getTitle()) + length(t.getDescription());
+            }
+        }
+
+        long nextId = data.getNextId() >= 0 ? data.getNextId() : data.getMaxId() + 1;
+        ColumnarBoard board = new ColumnarBoard(data.getBoardName(), Math.max(nextId, 0), columnSizes,
+                columnSizes[0] + columnSizes[1] + columnSizes[2]);
+        // exact for ASCII text; anything else grows the arena as usual
+        board.ensureArena(textChars);
+        for (int c = 0; c < COLUMNS.length; c++) {
+            for (Task t : lists.get(c)) {
+                board.add(t, COLUMNS[c]);
+                board.nextId = Math.max(board.nextId, t.getId() + 1);
+            }
+        }
+        board.trimToSize();
+        return board;
+    }
+
+    // drop spare capacity in the column arrays and the text arena
+    public void trimToSize() {
+        for (TaskColumn column : columns.values()) {
+            column.compact(index);
+            column.trimToSize();
+        }
+        if (arenaSize < arena.length && arenaSize >= MIN_ARENA_BYTES) {
+            arena = Arrays.copyOf(arena, arenaSize);
+        }
+    }
+
+    // rough heap footprint: the column arrays, the arena and the index, spare capacity included;
+    // views handed out are the caller's
+    public long estimateBytes() {
+        long bytes = HeapEstimate.array(arena.length, 1) + index.estimateBytes();
+        for (TaskColumn column : columns.values()) {
+            bytes += column.estimateBytes();
+        }
+        return bytes;
+    }
+
+    private static int length(String s) {
+        return s == null ? 0 : s.length();
+    }
+
+    // a view of every task; the lists are copies, so later changes to the board don't show
+    public SaveData toSaveData() {
+        return SaveData.wrap(new ArrayList<>(get(Column.TODO)), new ArrayList<>(get(Column.DOING)),
+                new ArrayList<>(get(Column.DONE)), boardName, -1, nextId);
+    }
+
+    public long nextId() {
+        return nextId++;
+    }
+
+    public long getNextId() {
+        return nextId;
+    }
+
+    public String getBoardName() {
+        return boardName;
+    }
+
+    public int size(Column column) {
+        return columns.get(column).live();
+    }
+
+    public void add(Task task, Column addToCol) {
+        add(task.getId(), task.getTitle(), task.getDescription(), task.getPriority(), addToCol);
+    }
+
+    public void add(long id, String title, String description, int priority, Column addToCol) {
+        TaskColumn column = columns.get(addToCol);
+        int offset = arenaSize;
+        int titleLength = append(title);
+        int descriptionLength = append(description);
+        column.add(id, priority, offset, titleLength, descriptionLength);
+        index.put(id, addToCol, column.size - 1);
+    }
+
+    // a new Task decoded from the board, or null
+    public Task find(long id) {
+        Column col = index.column(id);
+        if (col == null) {
+            return null;
+        }
+        return task(columns.get(col), index.position(id));
+    }
+
+    public Column getCol(long id) {
+        return index.column(id);
+    }
+
+    // the task's position in the list get() gives for its column, or -1 when it isn't on the board
+    public int position(long id) {
+        Column col = index.column(id);
+        if (col == null) {
+            return -1;
+        }
+        dense(col);
+        return index.position(id);
+    }
+
+    // Read-only live view of a column. Each get() makes a new flyweight Task, so hold on to the
+    // ones you need rather than calling get() repeatedly. Dead rows are compacted away here and
+    // again on access if the board changes, so a view must only be read from one thread at a
+    // time unless nothing changes the board meanwhile.
+    public List<Task> get(Column col) {
+        TaskColumn column = dense(col);
+        return new AbstractList<>() {
+            @Override
+            public Task get(int i) {
+                dense(col);
+                if (i < 0 || i >= column.size) {
+                    throw new IndexOutOfBoundsException("Index " + i + " out of bounds for length " + column.size);
+                }
+                return task(column, i);
+            }
+
+            @Override
+            public int size() {
+                return column.live();
+            }
+        };
+    }
+
+    // the column with no dead rows, so rows and list positions agree
+    private TaskColumn dense(Column col) {
+        TaskColumn column = columns.get(col);
+        if (column.dead > 0) {
+            column.compact(index);
+        }
+        return column;
+    }
+
+    public boolean remove(long id) {
+        Column col = index.column(id);
+        if (col == null) {
+            return false;
+        }
+
+        TaskColumn column = columns.get(col);
+        int i = index.position(id);
+        garbageBytes += column.textBytes(i);
+        column.kill(i);
+        index.remove(id);
+        if (column.dead > column.live()) {
+            column.compact(index);
+        }
+        compactIfNeeded();
+        return true;
+    }
+
+    // the text stays where it is in the arena; the row is copied to the end of the target
+    public boolean move(long id, Column to) {
+        Column from = index.column(id);
+        if (from == null) {
+            return false;
+        }
+
+        TaskColumn source = columns.get(from);
+        TaskColumn target = columns.get(to);
+        int i = index.position(id);
+        target.add(id, source.priorities[i], source.textOffsets[i], source.titleLengths[i], source.descriptionLengths[i]);
+        source.kill(i);
+        index.put(id, to, target.size - 1);
+        if (source.dead > source.live()) {
+            source.compact(index);
+        }
+        return true;
+    }
+
+    public boolean edit(long id, String title, String description, int priority) {
+        Column col = index.column(id);
+        if (col == null) {
+            return false;
+        }
+
+        TaskColumn column = columns.get(col);
+        int i = index.position(id);
+        garbageBytes += column.textBytes(i);
+        column.textOffsets[i] = arenaSize;
+        column.titleLengths[i] = append(title);
+        column.descriptionLengths[i] = append(description);
+        column.priorities[i] = (byte) priority;
+        compactIfNeeded();
+        return true;
+    }
+
+    // bytes of UTF-8 text held in the arena, including text no task refers to any more
+    public long getArenaBytes() {
+        return arenaSize;
+    }
+
+    private Task task(TaskColumn column, int i) {
+        return new TaskView(column.ids[i], column.priorities[i], arena, column.textOffsets[i],
+                column.titleLengths[i], column.descriptionLengths[i]);
+    }
+
+    private static String decode(byte[] arena, int offset, int length) {
+        return length == NULL_LENGTH ? null : new String(arena, offset, length, StandardCharsets.UTF_8);
+    }
+
+    // Task over one row's text in the arena it was made from. Like LazyTask, a setter stores the
+    // value normally and stops decoding that field.
+    private static final class TaskView extends Task {
+        // null once the view no longer reads from the arena
+        private byte[] titleSource;
+        private byte[] descriptionSource;
+        private final int offset;
+        private final int titleLength;
+        private final int descriptionLength;
+
+        TaskView(long id, int priority, byte[] arena, int offset, int titleLength, int descriptionLength) {
+            super(id, null, null, priority);
+            this.titleSource = arena;
+            this.descriptionSource = arena;
+            this.offset = offset;
+            this.titleLength = titleLength;
+            this.descriptionLength = descriptionLength;
+        }
+
+        @Override
+        public String getTitle() {
+            byte[] source = titleSource;
+            return source == null ? super.getTitle() : decode(source, offset, titleLength);
+        }
+
+        @Override
+        public void setTitle(String title) {
+            super.setTitle(title);
+            titleSource = null;
+        }
+
+        @Override
+        public String getDescription() {
+            byte[] source = descriptionSource;
+            return source == null ? super.getDescription()
+                    : decode(source, offset + Math.max(titleLength, 0), descriptionLength);
+        }
+
+        @Override
+        public void setDescription(String description) {
+            super.setDescription(description);
+            descriptionSource = null;
+        }
+    }
+
+    // copies the string's UTF-8 bytes to the end of the arena and returns the byte length
+    private int append(String s) {
+        if (s == null) {
+            return NULL_LENGTH;
+        }
+        byte[] bytes = s.getBytes(StandardCharsets.UTF_8);
+        ensureArena(arenaSize + (long) bytes.length);
+        System.arraycopy(bytes, 0, arena, arenaSize, bytes.length);
+        arenaSize += bytes.length;
+        return bytes.length;
+    }
+
+    private void ensureArena(long needed) {
+        if (needed > Integer.MAX_VALUE - 8) {
+            throw new IllegalStateException("Board text doesn't fit in one arena");
+        }
+        if (needed > arena.length) {
+            long capacity = Math.max(needed, arena.length + ((long) arena.length >> 1));
+            arena = Arrays.copyOf(arena, (int) Math.min(capacity, Integer.MAX_VALUE - 8));
+        }
+    }
+
+    // rebuild the arena from live text once at least half of it is garbage
+    private void compactIfNeeded() {
+        if (garbageBytes * 2 < arenaSize || arenaSize < MIN_ARENA_BYTES) {
+            return;
+        }
+
+        byte[] compacted = new byte[Math.max(MIN_ARENA_BYTES, (int) (arenaSize - garbageBytes))];
+        int size = 0;
+        for (TaskColumn column : columns.values()) {
+            for (int i = 0; i < column.size; i++) {
+                int length = column.textBytes(i);
+                System.arraycopy(arena, column.textOffsets[i], compacted, size, length);
+                column.textOffsets[i] = size;
+                size += length;
+            }
+        }
+        arena = compacted;
+        arenaSize = size;
+        garbageBytes = 0;
+    }
+}
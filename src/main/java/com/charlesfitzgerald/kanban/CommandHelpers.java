@@ -2,45 +2,68 @@ package com.charlesfitzgerald.kanban;
 
 import org.jetbrains.annotations.NotNull;
 
-import java.util.Comparator;
+import java.nio.file.Files;
+import java.nio.file.Paths;
 import java.util.List;
+import java.util.Objects;
+import java.util.Queue;
 import java.util.Scanner;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.function.Predicate;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.regex.PatternSyntaxException;
 
 public class CommandHelpers {
     private static final String VERSION = "0.8.0";
+    private static final String BULK_USAGE = "Usage: bulk move <col> to <col> [where <cond> [and <cond>...]] | bulk del <col> [where <cond> [and <cond>...]]\n"
+            + "  <cond> is priority or id, then = != < <= > or >=, then a number, e.g. 'bulk del done where id < 500'";
+    private static final Pattern BULK_COMMAND = Pattern.compile("(move|del)\\s+(\\S+)(?:\\s+to\\s+(\\S+))?(?:\\s+where\\s+(.+))?", Pattern.CASE_INSENSITIVE);
+    private static final Pattern BULK_CONDITION = Pattern.compile("(priority|id)\\s*(<=|>=|!=|=|<|>)\\s*(-?\\d+)", Pattern.CASE_INSENSITIVE);
+    private static final String QUERY_USAGE = "Usage: <cond> [AND <cond>...] [ORDER BY <key> [ASC|DESC] [, ...]] [LIMIT N]\n"
+            + "  e.g. col=todo AND prio>=2 AND title~\"deploy\" ORDER BY prio DESC LIMIT 20";
+    // rows shown when a query has no LIMIT; the count of every match is still reported
+    private static final int QUERY_SHOWN = 50;
+    // results of background saves, queued by the saver thread and printed by the REPL before
+    // its next prompt, so they never land in the middle of one
+    private static final Queue<String> SAVE_REPORTS = new ConcurrentLinkedQueue<>();
+    private static final String LIST_USAGE = "Usage: list [<col> | <all>] [--by id|title|priority] [--desc] [--limit N] [--offset N] [--top N] [--after <id>]";
 
     private static void printHelpCommands() {
         System.out.println("Commands:");
         System.out.println("  add          - Add a new task to a list");
         System.out.println("  list         - List tasks in a specific list.");
         System.out.println("  find         - Find task by id");
+        System.out.println("  search       - Find tasks by words in their title or description");
+        System.out.println("  query        - Find tasks matching conditions on list, id, priority and text");
+        System.out.println("  grep         - Find tasks whose title or description match a regular expression");
         System.out.println("  move         - Move a task between lists");
         System.out.println("  edit         - Edit a task by entering its id");
         System.out.println("  del          - Delete a task by entering its id");
+        System.out.println("  bulk         - Move or delete every task in a list that matches a condition");
+        System.out.println("  undo         - Take back the last command that changed the board");
+        System.out.println("  redo         - Make a change taken back by undo again");
         System.out.println("  save         - Save the current data");
         System.out.println("  save-as      - Rename the current board and save new file.");
         System.out.println("  load         - Load data from a save file");
+        System.out.println("  export       - Write the board as JSON to '<name>-export.json'");
+        System.out.println("  switch       - Open another board by name (boards stay loaded while memory allows)");
+        System.out.println("  boards       - List the boards in the save directory");
+        System.out.println("  stats        - Show latency and size stats (start with --stats)");
         System.out.println("  version      - View the current version of the software");
         System.out.println("  quit         - Exit the program");
     }
 
     public static void printMenu() {
-        System.out.println("Available commands: add | list | find | move | edit | del | save | save-as | load | version | help | quit");
+        printSaveReports();
+        System.out.println("Available commands: add | list | find | search | query | grep | move | edit | del | bulk | undo | redo | save | save-as | load | export | switch | boards | stats | version | help | quit");
         System.out.print("> ");
     }
 
-    // move to Column as a fromString function later
     @org.jetbrains.annotations.Nullable
     private static Column parseColumn(String input) {
-        input = input.trim().toLowerCase();
-
-        return switch (input) {
-            case "todo" -> Column.TODO;
-            case "doing" -> Column.DOING;
-            case "done" -> Column.DONE;
-            default -> null;
-        };
-
+        return Column.fromString(input);
     }
 
     private static long readLongOrFail(@NotNull Scanner scanner, String prompt) {
@@ -64,6 +87,15 @@ public class CommandHelpers {
         }
     }
 
+    private static int tryParseNonNegativeInt(String inputString) {
+        try {
+            int value = Integer.parseInt(inputString);
+            return value < 0 ? -1 : value;
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
     // Reads a priority in [1..3]; keeps prompting until valid.
     private static int readPriority1to3(Scanner scanner) {
         while (true) {
@@ -134,7 +166,7 @@ public class CommandHelpers {
         System.out.println("New task with ID " + newTask.getId() + " added to " + addToCol.name() + " successfully!");
         System.out.println("Your new task is: ");
         System.out.println(TaskViews.formatTaskLine(newTask, addToCol));
-        boolean addSave = board.save();
+        boolean addSave = board.persist();
         if (addSave) {
             System.out.printf("Board saved successfully to %s%n", board.getSaveFilePath());
         } else {
@@ -144,125 +176,118 @@ public class CommandHelpers {
 
     public static void handleList(@NotNull Board board, @NotNull Scanner scanner) {
         System.out.println("Select list: todo, doing, done, or type 'all' to print all lists");
-        System.out.println("Usage: list [<col> | <all>] [--by id|title|priority] [--desc]");
+        System.out.println(LIST_USAGE);
         System.out.print("> ");
-        String userListSelection = scanner.nextLine();
+        String userListSelection = scanner.nextLine().trim();
         String[] userListSelectionParts = userListSelection.split("\\s+");
-        Comparator<Task> cmp;
+        SortKey key = null;
         boolean isDescending = false;
+        int offset = 0;
+        int limit = TaskRenderer.NO_LIMIT;
+        int top = -1;
+        long afterId = -1;
 
-        // Handling printing all lists at once
         if (userListSelectionParts[0].isEmpty()) {
             System.out.println("Please provide input for this command");
             return;
         }
 
-        if (userListSelectionParts[0].trim().equalsIgnoreCase("all")) {
+        boolean listAll = userListSelectionParts[0].equalsIgnoreCase("all");
+        Column listColumn = listAll ? null : parseColumn(userListSelectionParts[0]);
 
-            if (userListSelectionParts.length < 2) {
-                TaskViews.printAll(board);
-                return;
-            }
-
-            if (userListSelectionParts.length < 3) {
-                System.out.println("Something went wrong with your query");
-                System.out.println("Usage: list [<col> | <all>] [--by id|title|priority] [--desc]");
-                TaskViews.printAll(board);
-                return;
-            }
-
-            if (userListSelectionParts.length > 4) {
-                System.out.println("You typed too much stuff");
-                System.out.println("Usage: list [<col> | <all>] [--by id|title|priority] [--desc]");
-                return;
-            }
-
-            if (userListSelectionParts[1].equalsIgnoreCase("--by")) {
-                String sortType = userListSelectionParts[2].trim().toLowerCase();
-                SortKey key = SortKey.fromFlag(sortType);
+        if (!listAll && listColumn == null) {
+            System.out.println("List not found");
+            return;
+        }
 
-                if (key == null) {
-                    System.out.println("Invalid sort type. Please enter a valid sort type");
-                    return;
+        // loop through the rest of the user input for flags
+        for (int i = 1; i < userListSelectionParts.length; i++) {
+            String token = userListSelectionParts[i].toLowerCase();
+            switch (token) {
+                case "--by" -> {
+                    key = i + 1 < userListSelectionParts.length ? SortKey.fromFlag(userListSelectionParts[++i]) : null;
+                    if (key == null) {
+                        System.out.println("Invalid sort type. Please enter a valid sort type");
+                        System.out.println(LIST_USAGE);
+                        return;
+                    }
                 }
-
-                // loop through the rest of the user input for a descending flag
-                for (int i = 3; i < userListSelectionParts.length; i++) {
-                    String token = userListSelectionParts[i];
-                    if ("--d".equalsIgnoreCase(token) || "--desc".equalsIgnoreCase(token) || "--descending".equalsIgnoreCase(token)) {
-                        isDescending = true;
-                        break;
-                    } else {
-                        System.out.println("Ignoring unknown flag " + token);
+                case "--d", "--desc", "--descending" -> isDescending = true;
+                case "--limit", "--offset", "--top" -> {
+                    int value = i + 1 < userListSelectionParts.length ? tryParseNonNegativeInt(userListSelectionParts[++i]) : -1;
+                    if (value < 0) {
+                        System.out.println(token + " needs a whole number of 0 or more");
+                        System.out.println(LIST_USAGE);
+                        return;
+                    }
+                    switch (token) {
+                        case "--limit" -> limit = value;
+                        case "--offset" -> offset = value;
+                        default -> top = value;
                     }
                 }
-
-                cmp = key.comparator(isDescending);
-
-                TaskViews.printAllSorted(board, cmp);
-            } else {
-                System.out.println("Invalid input after list selection");
-                System.out.println("Usage: list [<col> | <all>] [--by id|title|priority] [--desc]");
-                TaskViews.printAll(board);
+                case "--after" -> {
+                    afterId = i + 1 < userListSelectionParts.length ? tryParseLong(userListSelectionParts[++i]) : -1;
+                    if (afterId < 0) {
+                        System.out.println("--after needs the id of the last task you saw");
+                        System.out.println(LIST_USAGE);
+                        return;
+                    }
+                }
+                default -> System.out.println("Ignoring unknown flag " + userListSelectionParts[i]);
             }
-
-            return;
         }
 
-
-        Column listColumn = parseColumn(userListSelectionParts[0]);
-
-        if (listColumn == null) {
-            System.out.println("List not found");
+        if (top >= 0 && limit != TaskRenderer.NO_LIMIT) {
+            System.out.println("Use either --top or --limit, not both");
             return;
         }
-
-        List<Task> listSelection = board.get(listColumn);
-
-        if (userListSelectionParts.length < 2) {
-            TaskViews.printList(listSelection, listColumn);
+        if (afterId >= 0 && (offset > 0 || listAll)) {
+            System.out.println("--after continues a single list and can't be combined with --offset or 'all'");
             return;
         }
 
-        if (userListSelectionParts.length < 3) {
-            System.out.println("Something went wrong with your query");
-            System.out.println("Usage: list [<col> | <all>] [--by id|title|priority] [--desc]");
-            return;
+        // --top on its own means the most urgent tasks
+        if (top >= 0 && key == null) {
+            key = SortKey.PRIORITY;
+            isDescending = true;
         }
 
-        if (userListSelectionParts.length > 4) {
-            System.out.println("You typed too much stuff");
-            System.out.println("Usage: list [<col> | <all>] [--by id|title|priority] [--desc]");
-            return;
+        if (isDescending && key == null) {
+            System.out.println("Ignoring --desc without --by");
+            isDescending = false;
         }
 
-        if (userListSelectionParts[1].equalsIgnoreCase("--by")) {
-            String sortType = userListSelectionParts[2].trim().toLowerCase();
-            SortKey key = SortKey.fromFlag(sortType);
-
-            if (key == null) {
-                System.out.println("Invalid sort type. Please enter a valid sort type");
+        if (afterId >= 0) {
+            int pageSize = top >= 0 ? top : limit;
+            if (listColumn != null && listColumn != board.getCol(afterId)) {
+                System.out.println("Task with ID " + afterId + " is not in " + listColumn.name());
                 return;
             }
+            printNextPageHint(TaskViews.printPageAfter(board, listColumn, key, isDescending, afterId, pageSize), pageSize);
+            return;
+        }
 
-            // loop through the rest of the user input for a descending flag
-            for (int i = 3; i < userListSelectionParts.length; i++) {
-                String token = userListSelectionParts[i];
-                if ("--d".equalsIgnoreCase(token) || "--desc".equalsIgnoreCase(token) || "--descending".equalsIgnoreCase(token)) {
-                    isDescending = true;
-                    break;
-                } else {
-                    System.out.println("Ignoring unknown flag " + token);
-                }
+        if (top >= 0) {
+            if (listAll) {
+                TaskViews.printAllTop(board, key, isDescending, top);
+            } else {
+                printNextPageHint(TaskViews.printTop(board, listColumn, key, isDescending, top), top);
             }
+            return;
+        }
 
-            cmp = key.comparator(isDescending);
-
-            TaskViews.printListSorted(listSelection, listColumn, cmp);
+        if (listAll) {
+            TaskViews.printAllPages(board, key, isDescending, offset, limit);
         } else {
-            System.out.println("Invalid input after list selection");
-            System.out.println("Usage: list [<col> | <all>] [--by id|title|priority] [--desc]");
-            TaskViews.printList(listSelection, listColumn);
+            printNextPageHint(TaskViews.printPage(board, listColumn, key, isDescending, offset, limit), limit);
+        }
+    }
+
+    // after a limited page, show how to ask for the one that follows it
+    private static void printNextPageHint(Task last, int pageSize) {
+        if (last != null && pageSize != TaskRenderer.NO_LIMIT) {
+            System.out.println("Next page: add --after " + last.getId());
         }
     }
 
@@ -306,6 +331,115 @@ public class CommandHelpers {
         }
     }
 
+    public static void handleSearch(@NotNull Board board, @NotNull Scanner scanner) {
+        System.out.println("Enter search words; end a word with * to match by prefix (q to quit)");
+        System.out.print("> ");
+        String query = scanner.nextLine().trim();
+
+        if (query.isEmpty() || query.equalsIgnoreCase("q")) {
+            System.out.println("Returning to main menu");
+            return;
+        }
+
+        List<Task> results = board.search(query);
+        if (results.isEmpty()) {
+            System.out.println("No tasks found");
+            return;
+        }
+
+        for (Task t : results) {
+            System.out.println(TaskViews.formatTaskLine(t, board.getCol(t.getId())));
+        }
+        System.out.println(results.size() + " task(s) found");
+    }
+
+    public static void handleQuery(@NotNull Board board, @NotNull Scanner scanner) {
+        System.out.println("Enter a query (q to quit)");
+        System.out.println(QUERY_USAGE);
+        System.out.print("> ");
+        String text = scanner.nextLine().trim();
+
+        if (text.isEmpty() || text.equalsIgnoreCase("q")) {
+            System.out.println("Returning to main menu");
+            return;
+        }
+
+        TaskQuery query;
+        try {
+            query = TaskQuery.parse(text);
+        } catch (IllegalArgumentException e) {
+            System.out.println("Could not read that query: " + e.getMessage());
+            System.out.println(QUERY_USAGE);
+            return;
+        }
+
+        boolean capped = query.getLimit() == TaskQuery.NO_LIMIT;
+        TaskQuery.Result result = board.query(capped ? query.withLimit(QUERY_SHOWN) : query);
+        if (result.getMatched() == 0) {
+            System.out.println("No tasks found (" + result.getPlan() + ")");
+            return;
+        }
+
+        for (Task t : result.getTasks()) {
+            System.out.println(TaskViews.formatTaskLine(t, board.getCol(t.getId())));
+        }
+        System.out.println("Showing " + result.getTasks().size() + " of " + result.getMatched()
+                + " matching task(s) (" + result.getPlan() + ")");
+        if (capped && result.getMatched() > QUERY_SHOWN) {
+            System.out.println("Add LIMIT N to show more");
+        }
+    }
+
+    public static void handleGrep(@NotNull Board board, @NotNull Scanner scanner) {
+        System.out.println("Enter: [-i] [--title | --desc] <regex> (q to quit)");
+        System.out.print("> ");
+        String input = scanner.nextLine().trim();
+
+        if (input.isEmpty() || input.equalsIgnoreCase("q")) {
+            System.out.println("Returning to main menu");
+            return;
+        }
+
+        // leading flags; everything after them, spaces included, is the expression
+        boolean ignoreCase = false;
+        boolean titles = true;
+        boolean descriptions = true;
+        String[] parts = input.split("\\s+", 2);
+        while (parts.length == 2 && parts[0].startsWith("-")) {
+            switch (parts[0].toLowerCase()) {
+                case "-i" -> ignoreCase = true;
+                case "--title" -> descriptions = false;
+                case "--desc" -> titles = false;
+                default -> {
+                    System.out.println("Unknown flag " + parts[0]);
+                    return;
+                }
+            }
+            parts = parts[1].split("\\s+", 2);
+        }
+        if (!titles && !descriptions) {
+            System.out.println("Use either --title or --desc, not both");
+            return;
+        }
+        String regex = String.join(" ", parts);
+
+        Pattern pattern;
+        try {
+            pattern = Pattern.compile(regex, ignoreCase ? Pattern.CASE_INSENSITIVE | Pattern.UNICODE_CASE : 0);
+        } catch (PatternSyntaxException e) {
+            System.out.println("Invalid regular expression: " + e.getDescription());
+            return;
+        }
+
+        List<Task> results = board.grep(pattern, titles, descriptions);
+        if (results.isEmpty()) {
+            System.out.println("No tasks found");
+            return;
+        }
+        TaskViews.printTasks(board, results);
+        System.out.println(results.size() + " task(s) found");
+    }
+
     public static void handleMove(@NotNull Board board, @NotNull Scanner scanner) {
         boolean exitMove = false;
         while (true) {
@@ -369,7 +503,7 @@ public class CommandHelpers {
 
                     if (taskMoved) {
                         System.out.println("Task moved successfully");
-                        boolean moveSave = board.save();
+                        boolean moveSave = board.persist();
                         if (moveSave) {
                             System.out.printf("Board saved successfully to %s%n", board.getSaveFilePath());
                         } else {
@@ -443,8 +577,8 @@ public class CommandHelpers {
 
         // No-op detection
         boolean changed =
-                !newTitle.equals(editTask.getTitle()) ||
-                        !newDescription.equals(editTask.getDescription()) ||
+                !Objects.equals(newTitle, editTask.getTitle()) ||
+                        !Objects.equals(newDescription, editTask.getDescription()) ||
                         newPriority != editTask.getPriority();
 
         if (!changed) {
@@ -452,11 +586,11 @@ public class CommandHelpers {
             return;
         }
 
-        board.edit(editTask, newTitle, newDescription, newPriority);
+        Task edited = board.edit(editTask, newTitle, newDescription, newPriority);
 
         System.out.println("Task edited successfully");
-        System.out.println("Edited task: " + TaskViews.formatTaskLine(editTask, editTaskCol));
-        boolean editSave = board.save();
+        System.out.println("Edited task: " + TaskViews.formatTaskLine(edited, editTaskCol));
+        boolean editSave = board.persist();
         if (editSave) {
             System.out.printf("Board saved successfully to %s%n", board.getSaveFilePath());
         } else {
@@ -477,8 +611,6 @@ public class CommandHelpers {
                 continue;
             }
 
-            List<Task> delTaskList = board.get(delTaskCol);
-
             if (delTask == null) {
                 System.out.println("Task not found. Select a valid task");
                 continue;
@@ -500,7 +632,7 @@ public class CommandHelpers {
                     boolean result = board.remove(delId);
 
                     if (result) {
-                        int taskCount = delTaskList.size();
+                        int taskCount = board.get(delTaskCol).size();
                         exitDel = true;
                         System.out.println("Task removed successfully");
                         System.out.println(delTaskCol.name() + " currently has " + taskCount + " tasks.");
@@ -563,15 +695,150 @@ public class CommandHelpers {
         }
     }
 
-    public static void handleSave(@NotNull Board board) {
-        boolean save = board.save();
-        if (save) {
-            System.out.printf("Board '" + board.getBoardName() + "' successfully saved to %s%n", board.getSaveFilePath());
+    public static void handleBulk(@NotNull Board board, @NotNull Scanner scanner) {
+        System.out.println("Move or delete many tasks at once");
+        System.out.println(BULK_USAGE);
+        System.out.print("> ");
+        Matcher m = BULK_COMMAND.matcher(scanner.nextLine().trim());
+        if (!m.matches()) {
+            System.out.println("Could not read that bulk command");
+            System.out.println(BULK_USAGE);
+            return;
+        }
+
+        boolean move = m.group(1).equalsIgnoreCase("move");
+        Column from = parseColumn(m.group(2));
+        Column to = m.group(3) == null ? null : parseColumn(m.group(3));
+        Predicate<Task> filter = m.group(4) == null ? t -> true : parseConditions(m.group(4));
+        if (from == null || (move && to == null)) {
+            System.out.println("List not found");
+            return;
+        }
+        if (!move && m.group(3) != null) {
+            System.out.println("'to' only goes with bulk move");
+            return;
+        }
+        if (filter == null) {
+            System.out.println("Could not read the conditions after 'where'");
+            System.out.println(BULK_USAGE);
+            return;
+        }
+        if (from == to) {
+            System.out.println("The tasks are already in that list. Please select a different list.");
+            return;
+        }
+
+        long count = board.get(from).stream().filter(filter).count();
+        if (count == 0) {
+            System.out.println("No tasks in " + from.name() + " match");
+            return;
+        }
+        String question = move
+                ? "Move " + count + " task(s) from " + from.name() + " to " + to.name() + "? (y or n | q to quit)"
+                : "Delete " + count + " task(s) from " + from.name() + "? (y or n | q to quit)";
+        if (!askYesNoQuit(scanner, question).equals("y")) {
+            System.out.println("Bulk " + (move ? "move" : "delete") + " aborted. Returning to main menu");
+            return;
+        }
+
+        if (move) {
+            List<Task> moved = board.moveIf(from, filter, to);
+            System.out.println("Moved " + moved.size() + " task(s) from " + from.name() + " to " + to.name());
+        } else {
+            List<Task> removed = board.removeIf(from, filter);
+            System.out.println("Deleted " + removed.size() + " task(s) from " + from.name());
+        }
+        System.out.println(from.name() + " currently has " + board.get(from).size() + " tasks.");
+        reportPersist(board);
+    }
+
+    // "priority = 3 and id < 100" as a predicate, or null if any condition can't be read
+    @org.jetbrains.annotations.Nullable
+    private static Predicate<Task> parseConditions(String conditions) {
+        Predicate<Task> filter = t -> true;
+        for (String condition : conditions.trim().split("(?i)\\s+and\\s+")) {
+            Matcher m = BULK_CONDITION.matcher(condition.trim());
+            if (!m.matches()) {
+                return null;
+            }
+            boolean byId = m.group(1).equalsIgnoreCase("id");
+            String op = m.group(2);
+            long value;
+            try {
+                value = Long.parseLong(m.group(3));
+            } catch (NumberFormatException e) {
+                return null;
+            }
+            filter = filter.and(t -> {
+                long field = byId ? t.getId() : t.getPriority();
+                return switch (op) {
+                    case "=" -> field == value;
+                    case "!=" -> field != value;
+                    case "<" -> field < value;
+                    case "<=" -> field <= value;
+                    case ">" -> field > value;
+                    default -> field >= value;
+                };
+            });
+        }
+        return filter;
+    }
+
+    public static void handleUndo(@NotNull Board board) {
+        if (board.isColumnar()) {
+            System.out.println("Undo is off for boards started with --columnar");
+            return;
+        }
+        if (!board.undo()) {
+            System.out.println("Nothing to undo");
+            return;
+        }
+        System.out.println("Undid the last change");
+        reportPersist(board);
+    }
+
+    public static void handleRedo(@NotNull Board board) {
+        if (!board.redo()) {
+            System.out.println("Nothing to redo");
+            return;
+        }
+        System.out.println("Redid the last undone change");
+        reportPersist(board);
+    }
+
+    private static void reportPersist(Board board) {
+        if (board.persist()) {
+            System.out.printf("Board saved successfully to %s%n", board.getSaveFilePath());
         } else {
             System.out.printf("Failed to save board to %s%n", board.getSaveFilePath());
         }
     }
 
+    public static void handleSave(@NotNull Board board) {
+        String boardName = board.getBoardName();
+        String savePath = board.getSaveFilePath();
+        CompletableFuture<Boolean> save = board.saveAsync();
+
+        if (!save.isDone()) {
+            System.out.printf("Saving board '" + boardName + "' to %s in the background%n", savePath);
+        }
+
+        // reported before the first prompt after the write commits; the REPL doesn't wait on the disk
+        save.thenAccept(saved -> SAVE_REPORTS.add(saved
+                ? "Board '" + boardName + "' successfully saved to " + savePath
+                : "Failed to save board to " + savePath));
+        if (save.isDone()) {
+            printSaveReports();
+        }
+    }
+
+    private static void printSaveReports() {
+        String report;
+        while ((report = SAVE_REPORTS.poll()) != null) {
+            System.out.println(report);
+        }
+    }
+
     public static void handleLoad(@NotNull Board board) {
         boolean load = board.load();
 
@@ -583,6 +850,78 @@ public class CommandHelpers {
 
     }
 
+    public static void handleExport(@NotNull Board board) {
+        boolean exported = board.exportJson();
+
+        if (exported) {
+            System.out.printf("Board '" + board.getBoardName() + "' exported to %s%n", board.getExportPath());
+        } else {
+            System.out.printf("Failed to export board to %s%n", board.getExportPath());
+        }
+    }
+
+    // Returns the board to use from now on: the one switched to, or the current one if cancelled.
+    public static Board handleSwitch(@NotNull BoardRegistry registry, @NotNull Board board, @NotNull Scanner scanner) {
+        System.out.println("Current board: " + board.getBoardName());
+        System.out.println("Enter the name of the board to open (a new board is started if it doesn't exist)");
+        System.out.println("Type 'q' to cancel");
+        System.out.print("> ");
+        String name = scanner.nextLine().trim();
+
+        if (name.isEmpty() || name.equalsIgnoreCase("q")) {
+            System.out.println("Switch cancelled. Returning to main menu");
+            return board;
+        }
+        if (name.equals(board.getBoardName())) {
+            System.out.println("Board '" + name + "' is already open");
+            return board;
+        }
+
+        boolean wasResident = registry.isResident(name);
+        Board next = registry.open(name);
+        if (next == null) {
+            System.out.println("Invalid name. No empty name, '/' '\\' '..' allowed.");
+            return board;
+        }
+
+        // one background writer at a time; the board being left waits for its last write here
+        if (!board.stopBackgroundSaver()) {
+            System.out.printf("Failed to save board to %s%n", board.getSaveFilePath());
+        }
+        next.startBackgroundSaver();
+
+        if (wasResident) {
+            System.out.println("Switched to board '" + next.getBoardName() + "'");
+        } else if (Files.exists(Paths.get(next.getSaveFilePath()))) {
+            System.out.printf("Board '" + next.getBoardName() + "' successfully loaded from %s%n", next.getSaveFilePath());
+        } else {
+            System.out.println("No board named '" + next.getBoardName() + "' found. Starting a new board");
+        }
+        return next;
+    }
+
+    public static void handleBoards(@NotNull BoardRegistry registry, @NotNull Board board) {
+        List<String> names = registry.listBoards();
+        if (names.isEmpty()) {
+            System.out.println("No boards found in " + board.getSaveDir());
+            return;
+        }
+
+        System.out.println("Boards in " + board.getSaveDir() + ": (* open, + loaded)");
+        for (String name : names) {
+            String marker = name.equals(board.getBoardName()) ? "*" : registry.isResident(name) ? "+" : " ";
+            System.out.println(" " + marker + " " + name);
+        }
+    }
+
+    public static void handleStats() {
+        if (!Metrics.isEnabled()) {
+            System.out.println("Stats are off. Start with --stats (or --stats-file <file>) to collect them.");
+            return;
+        }
+        System.out.print(Metrics.report());
+    }
+
     public static void handleHelp(@NotNull Scanner scanner) {
         printHelpCommands();
 
@@ -624,11 +963,16 @@ public class CommandHelpers {
                     System.out.println();
                     break;
                 case "list":
-                    System.out.println("Usage: list <todo|doing|done|all> [--by id|title|priority] [--desc]");
+                    System.out.println("Usage: list <todo|doing|done|all> [--by id|title|priority] [--desc] [--limit N] [--offset N] [--top N] [--after <id>]");
                     System.out.println();
                     System.out.println("Options:");
-                    System.out.println("  --by <key>   Sort by id/title/priority (aliases supported)");
-                    System.out.println("  --desc, --d  Sort in descending order");
+                    System.out.println("  --by <key>    Sort by id/title/priority (aliases supported)");
+                    System.out.println("  --desc, --d   Sort in descending order (requires --by)");
+                    System.out.println("  --limit <N>   Show at most N tasks per list");
+                    System.out.println("  --offset <N>  Skip the first N tasks of each list");
+                    System.out.println("  --top <N>     Show the first N tasks without sorting the whole list");
+                    System.out.println("                (highest priority first unless --by is given)");
+                    System.out.println("  --after <id>  Continue a single list after the task with this id");
                     System.out.println();
                     System.out.println("Examples:");
                     System.out.println("  list todo");
@@ -636,6 +980,10 @@ public class CommandHelpers {
                     System.out.println("  list done --by p --d");
                     System.out.println("  list all");
                     System.out.println("  list all --by priority --desc");
+                    System.out.println("  list todo --by p --d --limit 20");
+                    System.out.println("  list done --limit 50 --offset 100");
+                    System.out.println("  list todo --top 20");
+                    System.out.println("  list todo --top 20 --after 512");
                     System.out.println();
                     break;
                 case "find":
@@ -654,6 +1002,58 @@ public class CommandHelpers {
                     System.out.println("  7 --v");
                     System.out.println();
                     break;
+                case "search":
+                    System.out.println("Usage: search");
+                    System.out.println();
+                    System.out.println("Description:");
+                    System.out.println("  Find tasks whose title or description contain ALL of the words you enter.");
+                    System.out.println("  Matching ignores case and punctuation. End a word with * to match any word");
+                    System.out.println("  starting with it. Results are listed in id order.");
+                    System.out.println();
+                    System.out.println("Examples:");
+                    System.out.println("  report");
+                    System.out.println("  quarterly rep*");
+                    System.out.println();
+                    break;
+                case "query":
+                    System.out.println("Usage: query");
+                    System.out.println();
+                    System.out.println("Description:");
+                    System.out.println("  Find tasks across the board matching ALL of the conditions joined by AND:");
+                    System.out.println("    col=todo, col!=done, col=todo,doing    which lists to look in");
+                    System.out.println("    id or prio with = != < <= > >=          e.g. prio>=2, id<500");
+                    System.out.println("    title~\"words\", desc~, text~           contains these words, as in search;");
+                    System.out.println("                                           text means title or description");
+                    System.out.println("    title=\"exact title\", desc=            the whole text, ignoring case");
+                    System.out.println("  != and !~ negate = and ~. Results are in board order unless ORDER BY names");
+                    System.out.println("  one or more of id, title or prio (each optionally DESC). Without LIMIT the");
+                    System.out.println("  first " + QUERY_SHOWN + " are shown; the number of matches is always reported,");
+                    System.out.println("  along with the index used to find them.");
+                    System.out.println();
+                    System.out.println("Examples:");
+                    System.out.println("  col=todo AND prio>=2 AND title~\"deploy\"");
+                    System.out.println("  text~\"release*\" ORDER BY prio DESC, id LIMIT 10");
+                    System.out.println("  col!=done AND prio=3");
+                    System.out.println();
+                    break;
+                case "grep":
+                    System.out.println("Usage: grep");
+                    System.out.println();
+                    System.out.println("Description:");
+                    System.out.println("  Find every task whose title or description contains a match for a Java");
+                    System.out.println("  regular expression. The board is split into chunks that are searched on all");
+                    System.out.println("  cores at once. Results are listed in id order.");
+                    System.out.println();
+                    System.out.println("Options (before the expression):");
+                    System.out.println("  -i        Ignore case");
+                    System.out.println("  --title   Only search titles");
+                    System.out.println("  --desc    Only search descriptions");
+                    System.out.println();
+                    System.out.println("Examples:");
+                    System.out.println("  invoice #\\d{4,}");
+                    System.out.println("  -i --desc password|secret");
+                    System.out.println();
+                    break;
                 case "move":
                     System.out.println("Usage: move");
                     System.out.println();
@@ -688,6 +1088,39 @@ public class CommandHelpers {
                     System.out.println("  del");
                     System.out.println();
                     break;
+                case "bulk":
+                    System.out.println("Usage: bulk move <col> to <col> [where <cond> [and <cond>...]]");
+                    System.out.println("       bulk del <col> [where <cond> [and <cond>...]]");
+                    System.out.println();
+                    System.out.println("Description:");
+                    System.out.println("  Move or delete every task in a list that matches all of the conditions (every");
+                    System.out.println("  task in the list when there is no 'where'). A condition compares 'priority' or");
+                    System.out.println("  'id' with a number using = != < <= > or >=. You are told how many tasks match");
+                    System.out.println("  and asked to confirm first. Moved tasks keep their order at the end of the");
+                    System.out.println("  target list. One 'undo' takes back the whole command.");
+                    System.out.println();
+                    System.out.println("Examples:");
+                    System.out.println("  bulk move todo to doing where priority = 3");
+                    System.out.println("  bulk del done where id < 500");
+                    System.out.println("  bulk del done");
+                    System.out.println();
+                    break;
+                case "undo":
+                case "redo":
+                    System.out.println("Usage: undo | redo");
+                    System.out.println();
+                    System.out.println("Description:");
+                    System.out.println("  'undo' puts the board back as it was before the last command that changed it");
+                    System.out.println("  (add, move, edit, del), and can be repeated to go back further, up to 100");
+                    System.out.println("  commands. 'redo' makes the last undone command again, until something else");
+                    System.out.println("  changes the board. History starts over when the board is loaded. Boards");
+                    System.out.println("  kept in columnar storage (start with --columnar) have no undo history.");
+                    System.out.println();
+                    System.out.println("Examples:");
+                    System.out.println("  undo");
+                    System.out.println("  redo");
+                    System.out.println();
+                    break;
                 case "save-as":
                     System.out.println("Usage: save-as");
                     System.out.println();
@@ -729,6 +1162,9 @@ public class CommandHelpers {
                     System.out.println();
                     System.out.println("Description:");
                     System.out.println("  Save the current board data to disk. By default, data is saved to 'board.json'.");
+                    System.out.println("  This writes a full snapshot and clears the change journal ('board.journal').");
+                    System.out.println("  Other commands only append their changes to the journal, which is folded into");
+                    System.out.println("  a new snapshot automatically once it grows large.");
                     System.out.println();
                     System.out.println("Examples:");
                     System.out.println("  save");
@@ -738,13 +1174,43 @@ public class CommandHelpers {
                     System.out.println("Usage: load");
                     System.out.println();
                     System.out.println("Description:");
-                    System.out.println("  Load board data from the save file ('board.json'). This replaces the");
-                    System.out.println("  current board state.");
+                    System.out.println("  Load board data from the save file ('board.json') and replay any changes");
+                    System.out.println("  recorded in its journal. This replaces the current board state.");
                     System.out.println();
                     System.out.println("Examples:");
                     System.out.println("  load");
                     System.out.println();
                     break;
+                case "export":
+                    System.out.println("Usage: export");
+                    System.out.println();
+                    System.out.println("Description:");
+                    System.out.println("  Write the whole board as pretty-printed JSON to 'boards/<name>-export.json'.");
+                    System.out.println("  Useful when the board is saved in the binary format (start with --binary),");
+                    System.out.println("  which is smaller and faster to load but not human readable, or compressed");
+                    System.out.println("  (start with --gzip [level 0-9], and optionally --gzip-buffer <KB>).");
+                    System.out.println();
+                    System.out.println("Examples:");
+                    System.out.println("  export");
+                    System.out.println();
+                    break;
+                case "stats":
+                    System.out.println("Usage: stats");
+                    System.out.println();
+                    System.out.println("Description:");
+                    System.out.println("  Show how long commands and board operations have taken since the program");
+                    System.out.println("  started: count, median (p50), p99, slowest and total time for each, plus");
+                    System.out.println("  the size of every snapshot and journal write. Command times leave out time");
+                    System.out.println("  spent waiting for input at prompts.");
+                    System.out.println();
+                    System.out.println("  Stats are only collected when the program is started with --stats, or with");
+                    System.out.println("  --stats-file <file> to also rewrite the report to that file every");
+                    System.out.println("  --stats-interval seconds (default 60) and on exit.");
+                    System.out.println();
+                    System.out.println("Examples:");
+                    System.out.println("  stats");
+                    System.out.println();
+                    break;
                 case "version":
                     System.out.println("Usage: version");
                     System.out.println();
@@ -759,7 +1225,8 @@ public class CommandHelpers {
                     System.out.println("Usage: quit");
                     System.out.println();
                     System.out.println("Description:");
-                    System.out.println("  Save (auto-save) and exit the program.");
+                    System.out.println("  Save (auto-save) and exit the program. Pending changes are appended to the");
+                    System.out.println("  board's journal rather than rewriting the whole save file.");
                     System.out.println();
                     System.out.println("Examples:");
                     System.out.println("  quit");
@@ -779,7 +1246,11 @@ public class CommandHelpers {
     }
 
     public static void handleQuit(@NotNull Board board) {
-        boolean quitSave = board.save();
+        // persist, then wait for any snapshot still being written in the background
+        boolean quitSave = board.persist();
+        quitSave &= board.stopBackgroundSaver();
+        board.releaseIds();
+        printSaveReports();
 
         if (quitSave) {
             System.out.printf("Board '"+board.getBoardName()+"' successfully saved to %s%n", board.getSaveFilePath());
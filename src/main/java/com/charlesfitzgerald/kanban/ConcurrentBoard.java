@@ -0,0 +1,452 @@
+package com.charlesfitzgerald.kanban;
+
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.StampedLock;
+import java.util.function.UnaryOperator;
+
+// Board variant that can be shared between threads.
+//
+// Each column has its own task list, id index and StampedLock, so work on different columns
+// never contends. Reads (find, getCol, get) try an optimistic read first and only take the
+// read lock if a writer got in the way. move locks both columns in Column order so two
+// opposite moves can't deadlock. Ids come from an atomic counter.
+//
+// The index holds each task's exact place in its column's list, so find, remove and move cost
+// O(1) plus the locking. A removed task leaves a null behind rather than shifting the tasks
+// after it; the list is compacted once the nulls outnumber the tasks, which renumbers the
+// column's index entries in O(n) but happens at most once per n/2 removals.
+public class ConcurrentBoard {
+    private static final Column[] COLUMNS = Column.values();
+
+    private final Map<Column, ColumnStore> columns = new EnumMap<>(Column.class);
+    private final AtomicLong nextId;
+    // shared with the Board this was copied from, when that board leases its ids
+    private final IdAllocator ids;
+    // bumped by every move so a lookup that raced a move across columns knows to look again
+    private final AtomicLong moves = new AtomicLong();
+    private final String boardName;
+
+    private static class ColumnStore {
+        // board order, with null where a task has been removed since the last compaction
+        final List<Task> tasks = new ArrayList<>();
+        final TaskIndex index = new TaskIndex();
+        final StampedLock lock = new StampedLock();
+        final Column column;
+        // tasks in the list, not counting the nulls
+        int size;
+
+        ColumnStore(Column column) {
+            this.column = column;
+        }
+
+        void add(Task t) {
+            tasks.add(t);
+            index.put(t, column, tasks.size() - 1);
+            size++;
+        }
+
+        Task remove(long id) {
+            Task t = tasks.set(index.position(id), null);
+            index.remove(id);
+            size--;
+            if (tasks.size() - size > size) {
+                compact();
+            }
+            return t;
+        }
+
+        // Swap in a new version of a task in its place. Tasks are never changed in place: readers
+        // outside the lock (find(), list copies, server responses) keep the version they saw
+        // whole, and tasks copied from a Board are still shared with its snapshots and undo steps.
+        void replace(Task t) {
+            int position = index.position(t.getId());
+            tasks.set(position, t);
+            index.put(t, column, position);
+        }
+
+        private void compact() {
+            int n = 0;
+            for (int i = 0; i < tasks.size(); i++) {
+                Task t = tasks.get(i);
+                if (t != null) {
+                    tasks.set(n, t);
+                    index.put(t, column, n);
+                    n++;
+                }
+            }
+            tasks.subList(n, tasks.size()).clear();
+        }
+
+        // every task in the list indexed at its position, and nothing else indexed
+        void verify() {
+            int count = 0;
+            for (int i = 0; i < tasks.size(); i++) {
+                Task t = tasks.get(i);
+                if (t == null) {
+                    continue;
+                }
+                count++;
+                if (index.get(t.getId()) != t || index.column(t.getId()) != column || index.position(t.getId()) != i) {
+                    throw new IllegalStateException("Task #" + t.getId() + " at " + column + "[" + i + "] is indexed as "
+                            + index.column(t.getId()) + "[" + index.position(t.getId()) + "]");
+                }
+            }
+            if (count != size || index.size() != size) {
+                throw new IllegalStateException(column + " holds " + count + " tasks, counts " + size
+                        + " and indexes " + index.size());
+            }
+        }
+
+        // the tasks in order, without the nulls
+        List<Task> copy() {
+            List<Task> copy = new ArrayList<>(size);
+            for (Task t : tasks) {
+                if (t != null) {
+                    copy.add(t);
+                }
+            }
+            return copy;
+        }
+
+        // Lookup without a lock. The index may be mid-update, which can surface as a runtime
+        // exception as well as a wrong answer; either way validate() fails and the caller retries.
+        Task findOptimistic(long id, long[] stamp) {
+            stamp[0] = lock.tryOptimisticRead();
+            if (stamp[0] != 0) {
+                try {
+                    Task t = index.get(id);
+                    if (lock.validate(stamp[0])) {
+                        return t;
+                    }
+                } catch (RuntimeException e) {
+                    // torn read, fall through to the read lock
+                }
+            }
+
+            long s = lock.readLock();
+            try {
+                return index.get(id);
+            } finally {
+                lock.unlockRead(s);
+            }
+        }
+    }
+
+    public ConcurrentBoard() {
+        this("board", 0);
+    }
+
+    public ConcurrentBoard(String boardName, long nextId) {
+        this(boardName, nextId, null);
+    }
+
+    private ConcurrentBoard(String boardName, long nextId, IdAllocator ids) {
+        for (Column col : COLUMNS) {
+            columns.put(col, new ColumnStore(col));
+        }
+        this.boardName = boardName;
+        this.nextId = new AtomicLong(nextId);
+        this.ids = ids;
+    }
+
+    // Copy the tasks of a single-threaded board into a new concurrent one. Ids keep coming from
+    // the board's lease file if it has one (IdAllocator is thread-safe).
+    public static ConcurrentBoard copyOf(Board board) {
+        ConcurrentBoard concurrent = new ConcurrentBoard(board.getBoardName(), board.getNextId(), board.getIdAllocator());
+        for (Column col : COLUMNS) {
+            ColumnStore store = concurrent.columns.get(col);
+            for (Task t : board.get(col)) {
+                store.add(t);
+            }
+        }
+        return concurrent;
+    }
+
+    // board built from decoded save data, e.g. a snapshot received by a replication follower
+    public static ConcurrentBoard fromSaveData(SaveData data) {
+        long nextId = data.getNextId() >= 0 ? data.getNextId() : data.getMaxId() + 1;
+        ConcurrentBoard concurrent = new ConcurrentBoard(data.getBoardName(), Math.max(nextId, 0), null);
+        List<List<Task>> lists = List.of(data.getTodo(), data.getDoing(), data.getDone());
+        for (int c = 0; c < COLUMNS.length; c++) {
+            ColumnStore store = concurrent.columns.get(COLUMNS[c]);
+            for (Task t : lists.get(c)) {
+                store.add(t);
+                concurrent.nextId.accumulateAndGet(t.getId() + 1, Math::max);
+            }
+        }
+        return concurrent;
+    }
+
+    public long nextId() {
+        return ids != null ? ids.next() : nextId.getAndIncrement();
+    }
+
+    public long getNextId() {
+        return ids != null ? ids.peek() : nextId.get();
+    }
+
+    public String getBoardName() {
+        return boardName;
+    }
+
+    public void add(Task task, Column addToCol) {
+        ColumnStore store = columns.get(addToCol);
+        long s = store.lock.writeLock();
+        try {
+            store.add(task);
+        } finally {
+            store.lock.unlockWrite(s);
+        }
+        if (ids == null) {
+            // tasks added with ids from elsewhere (a replication stream) mustn't be handed out again
+            nextId.accumulateAndGet(task.getId() + 1, Math::max);
+        }
+    }
+
+    public Task find(long id) {
+        Task[] found = new Task[1];
+        locate(id, found);
+        return found[0];
+    }
+
+    public Column getCol(long id) {
+        ColumnStore store = locate(id, null);
+        return store == null ? null : store.column;
+    }
+
+    // point-in-time copy of one column
+    public List<Task> get(Column column) {
+        ColumnStore store = columns.get(column);
+        long s = store.lock.tryOptimisticRead();
+        if (s != 0) {
+            try {
+                List<Task> copy = store.copy();
+                if (store.lock.validate(s)) {
+                    return copy;
+                }
+            } catch (RuntimeException e) {
+                // torn read, fall through to the read lock
+            }
+        }
+
+        s = store.lock.readLock();
+        try {
+            return store.copy();
+        } finally {
+            store.lock.unlockRead(s);
+        }
+    }
+
+    // The first k tasks of one column in key order, picked under the column's lock without
+    // copying or sorting the rest of it; see SortKey.top
+    public List<Task> top(Column column, SortKey key, boolean descending, int k) {
+        ColumnStore store = columns.get(column);
+        long s = store.lock.tryOptimisticRead();
+        if (s != 0) {
+            try {
+                List<Task> top = key.top(store.tasks, descending, k);
+                if (store.lock.validate(s)) {
+                    return top;
+                }
+            } catch (RuntimeException e) {
+                // torn read, fall through to the read lock
+            }
+        }
+
+        s = store.lock.readLock();
+        try {
+            return key.top(store.tasks, descending, k);
+        } finally {
+            store.lock.unlockRead(s);
+        }
+    }
+
+    public int size(Column column) {
+        ColumnStore store = columns.get(column);
+        long s = store.lock.tryOptimisticRead();
+        int size = store.size;
+        if (store.lock.validate(s)) {
+            return size;
+        }
+
+        s = store.lock.readLock();
+        try {
+            return store.size;
+        } finally {
+            store.lock.unlockRead(s);
+        }
+    }
+
+    public boolean remove(long id) {
+        while (true) {
+            ColumnStore store = locate(id, null);
+            if (store == null) {
+                return false;
+            }
+
+            long s = store.lock.writeLock();
+            try {
+                // the task may have moved since it was located
+                if (store.index.get(id) != null) {
+                    store.remove(id);
+                    return true;
+                }
+            } finally {
+                store.lock.unlockWrite(s);
+            }
+        }
+    }
+
+    public boolean move(long id, Column to) {
+        ColumnStore target = columns.get(to);
+        while (true) {
+            ColumnStore source = locate(id, null);
+            if (source == null) {
+                return false;
+            }
+
+            // always lock the lower column first so concurrent moves can't deadlock
+            ColumnStore first = source.column.ordinal() <= target.column.ordinal() ? source : target;
+            ColumnStore second = first == source ? target : source;
+            long s1 = first.lock.writeLock();
+            long s2 = first == second ? 0 : second.lock.writeLock();
+            try {
+                if (source.index.get(id) == null) {
+                    continue; // moved or removed while we were locking; look again
+                }
+                Task t = source.remove(id);
+                target.add(t);
+                moves.incrementAndGet();
+                return true;
+            } finally {
+                if (first != second) {
+                    second.lock.unlockWrite(s2);
+                }
+                first.lock.unlockWrite(s1);
+            }
+        }
+    }
+
+    public boolean edit(long id, String title, String description, int priority) {
+        return edit(id, t -> new Task(id, title, description, priority)) != null;
+    }
+
+    // Replace the task with change(current task) under the column's write lock, so an edit
+    // based on the current fields (e.g. one that sets only some of them) can't lose a concurrent
+    // one. change must return a new Task with the same id. Returns it, or null if no such task.
+    public Task edit(long id, UnaryOperator<Task> change) {
+        while (true) {
+            ColumnStore store = locate(id, null);
+            if (store == null) {
+                return null;
+            }
+
+            long s = store.lock.writeLock();
+            try {
+                Task current = store.index.get(id);
+                if (current != null) {
+                    Task edited = change.apply(current);
+                    if (edited.getId() != id) {
+                        throw new IllegalArgumentException("An edit of task #" + id + " can't change its id");
+                    }
+                    store.replace(edited);
+                    return edited;
+                }
+            } finally {
+                store.lock.unlockWrite(s);
+            }
+        }
+    }
+
+    // Consistent copy of the whole board: every column is read-locked (in Column order) at once.
+    public SaveData toSaveData() {
+        long[] stamps = new long[COLUMNS.length];
+        for (int i = 0; i < COLUMNS.length; i++) {
+            stamps[i] = columns.get(COLUMNS[i]).lock.readLock();
+        }
+        try {
+            return SaveData.wrap(columns.get(Column.TODO).copy(), columns.get(Column.DOING).copy(),
+                    columns.get(Column.DONE).copy(), boardName, -1, getNextId());
+        } finally {
+            for (int i = COLUMNS.length - 1; i >= 0; i--) {
+                columns.get(COLUMNS[i]).lock.unlockRead(stamps[i]);
+            }
+        }
+    }
+
+    // Check that each column's index and list agree and that no id is on the board twice;
+    // throws IllegalStateException otherwise. Every column is read-locked, as in toSaveData().
+    void verify() {
+        long[] stamps = new long[COLUMNS.length];
+        for (int i = 0; i < COLUMNS.length; i++) {
+            stamps[i] = columns.get(COLUMNS[i]).lock.readLock();
+        }
+        try {
+            Set<Long> seen = new HashSet<>();
+            for (Column col : COLUMNS) {
+                ColumnStore store = columns.get(col);
+                store.verify();
+                for (Task t : store.tasks) {
+                    if (t != null && !seen.add(t.getId())) {
+                        throw new IllegalStateException("Task #" + t.getId() + " is on the board twice");
+                    }
+                }
+            }
+        } finally {
+            for (int i = COLUMNS.length - 1; i >= 0; i--) {
+                columns.get(COLUMNS[i]).lock.unlockRead(stamps[i]);
+            }
+        }
+    }
+
+    // Which column holds the id. Columns are checked one at a time, so a task moving into an
+    // already-checked column could be missed; the move counter catches that, and the lookup is
+    // then repeated with every column read-locked so it can't keep losing the race.
+    // The task seen in that column is stored in found[0] when found is given; looking it up
+    // again afterwards could miss it if it moved in between.
+    private ColumnStore locate(long id, Task[] found) {
+        long[] stamp = new long[1];
+        long movesBefore = moves.get();
+        for (Column col : COLUMNS) {
+            ColumnStore store = columns.get(col);
+            Task t = store.findOptimistic(id, stamp);
+            if (t != null) {
+                if (found != null) {
+                    found[0] = t;
+                }
+                return store;
+            }
+        }
+        if (moves.get() == movesBefore) {
+            return null;
+        }
+
+        long[] stamps = new long[COLUMNS.length];
+        for (int i = 0; i < COLUMNS.length; i++) {
+            stamps[i] = columns.get(COLUMNS[i]).lock.readLock();
+        }
+        try {
+            for (Column col : COLUMNS) {
+                ColumnStore store = columns.get(col);
+                Task t = store.index.get(id);
+                if (t != null) {
+                    if (found != null) {
+                        found[0] = t;
+                    }
+                    return store;
+                }
+            }
+            return null;
+        } finally {
+            for (int i = COLUMNS.length - 1; i >= 0; i--) {
+                columns.get(COLUMNS[i]).lock.unlockRead(stamps[i]);
+            }
+        }
+    }
+}
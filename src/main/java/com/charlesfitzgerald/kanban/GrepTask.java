@@ -0,0 +1,140 @@
+package com.charlesfitzgerald.kanban;
+
+import java.io.Serial;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.RecursiveTask;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+// Regex match over a range of the board's columns, taken end to end as one sequence so the
+// work splits evenly however the tasks are spread. Ranges above CHUNK are halved and the halves
+// run as separate fork/join tasks. A chunk sorts its few matches by id, and halves merge as they
+// join, so the result comes back in id order without sorting every match at the end.
+//
+// The columns must not change while the task runs; Board hands it frozen vectors.
+public class GrepTask extends RecursiveTask<Task[]> {
+    // fork/join tasks are Serializable through ForkJoinTask, but a GrepTask is never serialized
+    @Serial
+    private static final long serialVersionUID = 1L;
+
+    // tasks per leaf: enough regex work to dwarf the cost of forking, small enough that
+    // there are many more chunks than cores on a large board
+    static final int CHUNK = 4096;
+    private static final Comparator<Task> BY_ID = Comparator.comparingLong(Task::getId);
+
+    private final transient List<? extends List<Task>> columns;
+    // starts[c] is the position of column c's first task in the whole sequence
+    private final int[] starts;
+    private final int from;
+    private final int to;
+    private final Pattern pattern;
+    private final boolean titles;
+    private final boolean descriptions;
+
+    public GrepTask(List<? extends List<Task>> columns, Pattern pattern, boolean titles, boolean descriptions) {
+        this(columns, startsOf(columns), 0, totalSize(columns), pattern, titles, descriptions);
+    }
+
+    private GrepTask(List<? extends List<Task>> columns, int[] starts, int from, int to,
+                     Pattern pattern, boolean titles, boolean descriptions) {
+        this.columns = columns;
+        this.starts = starts;
+        this.from = from;
+        this.to = to;
+        this.pattern = pattern;
+        this.titles = titles;
+        this.descriptions = descriptions;
+    }
+
+    @Override
+    protected Task[] compute() {
+        if (to - from <= CHUNK) {
+            return matchRange();
+        }
+        int mid = (from + to) >>> 1;
+        GrepTask left = new GrepTask(columns, starts, from, mid, pattern, titles, descriptions);
+        GrepTask right = new GrepTask(columns, starts, mid, to, pattern, titles, descriptions);
+        left.fork();
+        Task[] rightMatches = right.compute();
+        return merge(left.join(), rightMatches);
+    }
+
+    private Task[] matchRange() {
+        if (from == to) {
+            return new Task[0];
+        }
+        List<Task> matches = new ArrayList<>();
+        // one matcher per chunk, reset for each string; Pattern is shared, Matcher is not
+        Matcher m = pattern.matcher("");
+        int c = 0;
+        while (starts[c + 1] <= from) {
+            c++;
+        }
+        // columns seek in O(log n), then walk leaf by leaf
+        Iterator<Task> it = columns.get(c).listIterator(from - starts[c]);
+        for (int pos = from; pos < to; pos++) {
+            while (!it.hasNext()) {
+                it = columns.get(++c).iterator();
+            }
+            Task t = it.next();
+            if (matches(m, t)) {
+                matches.add(t);
+            }
+        }
+
+        Task[] sorted = matches.toArray(new Task[0]);
+        Arrays.sort(sorted, BY_ID);
+        return sorted;
+    }
+
+    private boolean matches(Matcher m, Task t) {
+        if (titles && t.getTitle() != null && m.reset(t.getTitle()).find()) {
+            return true;
+        }
+        if (descriptions) {
+            String description = t.getDescription();
+            return description != null && m.reset(description).find();
+        }
+        return false;
+    }
+
+    private static Task[] merge(Task[] a, Task[] b) {
+        if (a.length == 0) {
+            return b;
+        }
+        if (b.length == 0) {
+            return a;
+        }
+        Task[] out = new Task[a.length + b.length];
+        int i = 0;
+        int j = 0;
+        int n = 0;
+        while (i < a.length && j < b.length) {
+            out[n++] = a[i].getId() <= b[j].getId() ? a[i++] : b[j++];
+        }
+        System.arraycopy(a, i, out, n, a.length - i);
+        System.arraycopy(b, j, out, n + a.length - i, b.length - j);
+        return out;
+    }
+
+    // one extra entry at the end holds the total, so starts[c + 1] is always the end of column c
+    private static int[] startsOf(List<? extends List<Task>> columns) {
+        int[] starts = new int[columns.size() + 1];
+        for (int c = 0; c < columns.size(); c++) {
+            starts[c + 1] = starts[c] + columns.get(c).size();
+        }
+        return starts;
+    }
+
+    private static int totalSize(List<? extends List<Task>> columns) {
+        int total = 0;
+        for (List<Task> col : columns) {
+            total += col.size();
+        }
+        return total;
+    }
+}
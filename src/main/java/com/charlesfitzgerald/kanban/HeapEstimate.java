@@ -0,0 +1,25 @@
+package com.charlesfitzgerald.kanban;
+
+// Rough per-object heap costs on a 64-bit JVM with compressed oops, for the footprint
+// estimates BoardRegistry budgets resident boards by. Padding and sharing are ignored: the
+// estimates only need to be close enough to compare boards against a budget.
+public class HeapEstimate {
+    public static final long REFERENCE_BYTES = 4;
+    public static final long ARRAY_HEADER_BYTES = 16;
+    // a String and its byte array, before the characters
+    public static final long STRING_OVERHEAD_BYTES = 40;
+    // one TreeMap entry, which is also what a TreeSet element costs
+    public static final long TREE_ENTRY_BYTES = 40;
+    // an empty TreeSet and the TreeMap behind it
+    public static final long TREE_BYTES = 64;
+
+    private HeapEstimate() {}
+
+    public static long array(int length, long elementBytes) {
+        return ARRAY_HEADER_BYTES + length * elementBytes;
+    }
+
+    public static long string(String s) {
+        return s == null ? 0 : STRING_OVERHEAD_BYTES + s.length();
+    }
+}
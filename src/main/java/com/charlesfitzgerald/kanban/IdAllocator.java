@@ -0,0 +1,140 @@
+package com.charlesfitzgerald.kanban;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Hands out task ids that stay unique across every process working on the same board.
+//
+// The lease file (boards/<name>.ids) holds the high-water mark: the first id no process has
+// been given yet. A process leases a block of ids by moving the mark forward while holding an
+// exclusive FileChannel lock, then hands the block out from memory with no locking at all.
+// Only running out of a block goes back to the file.
+//
+// The mark isn't fsynced: the OS keeps the file coherent between processes, and after a crash
+// the snapshot and journal still give a floor above every id that was actually used.
+public class IdAllocator {
+    public static final String EXTENSION = ".ids";
+    private static final int DEFAULT_BLOCK_SIZE = 256;
+
+    private final Path path;
+    private final int blockSize;
+    // the lowest id this process may hand out, whatever the lease file says
+    private final long floor;
+    private volatile Block block;
+
+    // ids next..end-1 are leased to this process
+    private static class Block {
+        final AtomicLong next;
+        final long end;
+
+        Block(long next, long end) {
+            this.next = new AtomicLong(next);
+            this.end = end;
+        }
+    }
+
+    private IdAllocator(Path path, long floor, int blockSize) {
+        this.path = path;
+        this.floor = floor;
+        this.blockSize = blockSize;
+        this.block = new Block(floor, floor);
+    }
+
+    // nothing is read or locked until the first id is needed
+    public static IdAllocator open(Path path, long floor) {
+        return new IdAllocator(path, floor, DEFAULT_BLOCK_SIZE);
+    }
+
+    public static IdAllocator open(Path path, long floor, int blockSize) {
+        return new IdAllocator(path, floor, blockSize);
+    }
+
+    public Path getPath() {
+        return path;
+    }
+
+    // Next id from the current block, leasing a new block when it runs out.
+    // Throws UncheckedIOException if the lease file can't be read or written.
+    public long next() {
+        while (true) {
+            Block b = block;
+            long id = b.next.getAndIncrement();
+            if (id < b.end) {
+                return id;
+            }
+            synchronized (this) {
+                // another thread may have leased while we waited
+                if (block == b) {
+                    block = lease(blockSize);
+                }
+            }
+        }
+    }
+
+    // the id next() would return if the current block isn't used up
+    public long peek() {
+        Block b = block;
+        return Math.min(b.next.get(), b.end);
+    }
+
+    // Give the unused rest of the block back, as long as no other process has leased after it,
+    // so ids stay dense when a single process opens and closes a board.
+    public synchronized void release() throws IOException {
+        Block b = block;
+        long next = Math.min(b.next.get(), b.end);
+        if (next >= b.end) {
+            return;
+        }
+
+        // closing the channel releases the lock
+        try (FileChannel ch = FileChannel.open(path, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            ch.lock();
+            if (readMark(ch) == b.end) {
+                writeMark(ch, next);
+            }
+        }
+        block = new Block(next, next);
+    }
+
+    private Block lease(int size) {
+        try {
+            Path parent = path.getParent();
+            if (parent != null) {
+                Files.createDirectories(parent);
+            }
+            try (FileChannel ch = FileChannel.open(path, StandardOpenOption.CREATE,
+                    StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+                ch.lock();
+                long start = Math.max(readMark(ch), Math.max(floor, block.end));
+                writeMark(ch, start + size);
+                return new Block(start, start + size);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not lease task ids from " + path, e);
+        }
+    }
+
+    // an empty or short file means no ids have been leased yet
+    private static long readMark(FileChannel ch) throws IOException {
+        ByteBuffer buf = ByteBuffer.allocate(Long.BYTES);
+        while (buf.hasRemaining()) {
+            if (ch.read(buf, buf.position()) < 0) {
+                return 0;
+            }
+        }
+        return buf.getLong(0);
+    }
+
+    private static void writeMark(FileChannel ch, long mark) throws IOException {
+        ByteBuffer buf = ByteBuffer.allocate(Long.BYTES).putLong(0, mark);
+        while (buf.hasRemaining()) {
+            ch.write(buf, buf.position());
+        }
+    }
+}
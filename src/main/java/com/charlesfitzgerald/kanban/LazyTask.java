@@ -0,0 +1,58 @@
+package com.charlesfitzgerald.kanban;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+// Task whose description stays in the memory-mapped binary snapshot it was read from.
+//
+// Listings only need ids, titles and priorities, so the description is decoded from the
+// mapping each time it is asked for (the detailed view, search indexing, saving) and never
+// kept on the heap. Setting a description stores it normally and lets go of the mapping.
+// The mapping stays valid after the snapshot file is replaced, because the old file is only
+// unlinked while it is still mapped.
+public class LazyTask extends Task {
+    // null once the description has been set in memory
+    private ByteBuffer source;
+    private final int offset;
+    private final int length;
+
+    LazyTask(long id, String title, ByteBuffer source, int offset, int length, int priority) {
+        super(id, title, null, priority);
+        this.source = source;
+        this.offset = offset;
+        this.length = length;
+    }
+
+    @Override
+    public String getDescription() {
+        ByteBuffer buf = source;
+        if (buf == null) {
+            return super.getDescription();
+        }
+        return new String(descriptionBytes(buf), StandardCharsets.UTF_8);
+    }
+
+    @Override
+    public void setDescription(String description) {
+        super.setDescription(description);
+        source = null;
+    }
+
+    // whether the description is still only in the mapping
+    public boolean isDescriptionMapped() {
+        return source != null;
+    }
+
+    // UTF-8 bytes of the description straight from the mapping, or null if it was replaced
+    byte[] mappedDescriptionBytes() {
+        ByteBuffer buf = source;
+        return buf == null ? null : descriptionBytes(buf);
+    }
+
+    // absolute get, so tasks sharing one mapping can be read from any thread
+    private byte[] descriptionBytes(ByteBuffer buf) {
+        byte[] bytes = new byte[length];
+        buf.get(offset, bytes);
+        return bytes;
+    }
+}
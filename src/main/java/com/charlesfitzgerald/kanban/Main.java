@@ -1,49 +1,447 @@
 package com.charlesfitzgerald.kanban;
 
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
 import java.util.Scanner;
+import java.util.concurrent.CompletableFuture;
 
 public class Main {
+    private static final int DEFAULT_SERVE_PORT = 8080;
+    private static final long DEFAULT_STATS_INTERVAL_SECONDS = 60;
+    // commands 'undo' can take back
+    private static final int UNDO_STEPS = 100;
 
     public static void main(String[] args) {
         Board board = new Board();
-        Scanner scanner = new Scanner(System.in);
+        TimedInputStream stdin = new TimedInputStream(System.in);
+        Scanner scanner = new Scanner(stdin);
 
-        boolean loadOnStartUp = board.load();
+        int servePort = -1;
+        String batchFile = null;
+        int saveEvery = 0;
+        long heapBudgetBytes = Runtime.getRuntime().maxMemory() / 4;
+        String statsFile = null;
+        long statsInterval = DEFAULT_STATS_INTERVAL_SECONDS;
+        int replicatePort = -1;
+        int followPort = -1;
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+                case "--binary" -> board.setSnapshotFormat(SnapshotFormat.BINARY);
+                // keep tasks in primitive arrays rather than objects, for very large boards
+                case "--columnar" -> board.setColumnar(true);
+                case "--gzip" -> {
+                    board.setSnapshotFormat(SnapshotFormat.GZIP);
+                    // optional compression level right after the flag
+                    if (i + 1 < args.length && args[i + 1].matches("\\d")) {
+                        board.setCompression(Integer.parseInt(args[++i]), board.getCompressionBufferSize());
+                    }
+                }
+                case "--gzip-buffer" -> {
+                    // kilobytes the deflater and inflater work through at a time
+                    if (i + 1 < args.length && args[i + 1].matches("[1-9]\\d{0,5}")) {
+                        board.setCompression(board.getCompressionLevel(), Integer.parseInt(args[++i]) << 10);
+                    } else {
+                        System.out.println("--gzip-buffer needs a size in kilobytes");
+                        return;
+                    }
+                }
+                case "--serve" -> {
+                    servePort = DEFAULT_SERVE_PORT;
+                    // optional port right after the flag
+                    if (i + 1 < args.length && args[i + 1].matches("\\d+")) {
+                        servePort = Integer.parseInt(args[++i]);
+                    }
+                }
+                case "--batch" -> {
+                    if (i + 1 < args.length) {
+                        batchFile = args[++i];
+                    } else {
+                        System.out.println("--batch needs a file name, or - to read stdin");
+                        return;
+                    }
+                }
+                case "--save-every" -> {
+                    if (i + 1 < args.length && args[i + 1].matches("\\d+")) {
+                        saveEvery = Integer.parseInt(args[++i]);
+                    } else {
+                        System.out.println("--save-every needs a number of commands");
+                        return;
+                    }
+                }
+                case "--heap-budget" -> {
+                    // megabytes of heap that boards kept open by 'switch' may use
+                    if (i + 1 < args.length && args[i + 1].matches("\\d+")) {
+                        heapBudgetBytes = Long.parseLong(args[++i]) << 20;
+                    } else {
+                        System.out.println("--heap-budget needs a size in megabytes");
+                        return;
+                    }
+                }
+                case "--stats" -> Metrics.enable();
+                case "--stats-file" -> {
+                    if (i + 1 < args.length) {
+                        statsFile = args[++i];
+                        Metrics.enable();
+                    } else {
+                        System.out.println("--stats-file needs a file name");
+                        return;
+                    }
+                }
+                case "--stats-interval" -> {
+                    if (i + 1 < args.length && args[i + 1].matches("\\d+") && Long.parseLong(args[i + 1]) > 0) {
+                        statsInterval = Long.parseLong(args[++i]);
+                    } else {
+                        System.out.println("--stats-interval needs a number of seconds");
+                        return;
+                    }
+                }
+                case "--replicate" -> {
+                    // stream this board's changes to followers connecting on this local port
+                    if (i + 1 < args.length && args[i + 1].matches("\\d+")) {
+                        replicatePort = Integer.parseInt(args[++i]);
+                    } else {
+                        System.out.println("--replicate needs a port for followers to connect to");
+                        return;
+                    }
+                }
+                case "--follow" -> {
+                    if (i + 1 < args.length && args[i + 1].matches("\\d+")) {
+                        followPort = Integer.parseInt(args[++i]);
+                    } else {
+                        System.out.println("--follow needs the leader's replication port");
+                        return;
+                    }
+                }
+                default -> System.out.println("Ignoring unknown option " + args[i]);
+            }
+        }
 
-        if (loadOnStartUp) {
-            System.out.printf("Board '" + board.getBoardName() + "' successfully loaded from %s%n", board.getSaveFilePath());
-        } else {
-            System.out.println("No board found. Starting a new board");
-            System.out.println();
+        if (statsFile != null) {
+            Metrics.startDump(Paths.get(statsFile), statsInterval);
+        }
+
+        // a follower's board comes from the leader, so nothing is loaded from disk
+        if (followPort >= 0) {
+            follow(scanner, followPort, servePort);
+            Metrics.stopDump();
+            return;
+        }
+        if (replicatePort >= 0 && servePort >= 0) {
+            System.out.println("--replicate can't be combined with --serve; the server doesn't change the board directly");
+            return;
+        }
+        ReplicationLeader leader = replicatePort >= 0 ? new ReplicationLeader() : null;
+
+        // Load on another thread so the menu comes up straight away; the board isn't touched
+        // on this thread until the load has been waited for.
+        CompletableFuture<Boolean> loading = CompletableFuture.supplyAsync(board::load);
+
+        if (batchFile != null) {
+            reportLoad(board, loading.join());
+            startReplication(board, leader, replicatePort);
+            runBatch(board, batchFile, saveEvery);
+            if (leader != null) {
+                leader.stop();
+            }
+            Metrics.stopDump();
+            return;
         }
 
+        if (servePort >= 0) {
+            reportLoad(board, loading.join());
+            serve(board, scanner, servePort);
+            Metrics.stopDump();
+            return;
+        }
+
+        BoardRegistry registry = new BoardRegistry(board.getSaveDir(), heapBudgetBytes);
+        registry.setSnapshotFormat(board.getSnapshotFormat());
+        registry.setCompression(board.getCompressionLevel(), board.getCompressionBufferSize());
+        registry.setColumnar(board.isColumnar());
+        boolean loaded = false;
+
         while(true) {
+            if (!loaded && loading.isDone()) {
+                loaded = finishLoad(board, loading, registry, leader, replicatePort);
+            }
             CommandHelpers.printMenu();
             String input = scanner.nextLine().trim().toLowerCase();
+            // command latency, minus the time its prompts spend waiting for the user
+            long start = Metrics.start();
+            long waited = stdin.getWaitedNanos();
+            boolean known = true;
+
+            if (!loaded && needsBoard(input)) {
+                loaded = finishLoad(board, loading, registry, leader, replicatePort);
+            }
+            if (loaded) {
+                // each command is one undo step
+                board.checkpoint();
+            }
 
             switch (input) {
                 // no input returns user to main menu
-                case "" -> {
-                }
+                case "" -> known = false;
                 case "add" -> CommandHelpers.handleAdd(board, scanner);
                 case "list" -> CommandHelpers.handleList(board, scanner);
                 case "find" -> CommandHelpers.handleFind(board, scanner);
+                case "search" -> CommandHelpers.handleSearch(board, scanner);
+                case "query" -> CommandHelpers.handleQuery(board, scanner);
+                case "grep" -> CommandHelpers.handleGrep(board, scanner);
                 case "move" -> CommandHelpers.handleMove(board, scanner);
                 case "edit" -> CommandHelpers.handleEdit(board, scanner);
                 case "del" -> CommandHelpers.handleDel(board, scanner);
-                case "save-as" -> CommandHelpers.handleSaveAs(board, scanner);
+                case "bulk" -> CommandHelpers.handleBulk(board, scanner);
+                case "undo" -> CommandHelpers.handleUndo(board);
+                case "redo" -> CommandHelpers.handleRedo(board);
+                case "save-as" -> {
+                    CommandHelpers.handleSaveAs(board, scanner);
+                    registry.add(board);
+                }
                 case "save" -> CommandHelpers.handleSave(board);
                 case "load" -> CommandHelpers.handleLoad(board);
+                case "export" -> CommandHelpers.handleExport(board);
+                case "switch" -> {
+                    Board previous = board;
+                    board = CommandHelpers.handleSwitch(registry, board, scanner);
+                    board.setUndoLimit(UNDO_STEPS);
+                    // followers follow whichever board is open
+                    if (board != previous && previous.getReplication() != null) {
+                        previous.setReplication(null);
+                        board.setReplication(leader);
+                    }
+                }
+                case "boards" -> CommandHelpers.handleBoards(registry, board);
+                case "stats" -> CommandHelpers.handleStats();
                 case "help" -> CommandHelpers.handleHelp(scanner);
                 case "version" -> CommandHelpers.handleVersion();
                 case "quit" -> {
                     CommandHelpers.handleQuit(board);
+                    if (leader != null) {
+                        leader.stop();
+                    }
+                    // write back the other boards that were opened this session
+                    if (!registry.close()) {
+                        System.out.println("Some boards could not be saved");
+                    }
                     scanner.close();
+                    Metrics.stopDump();
+                    return;
+                }
+                default -> {
+                    System.out.println("Command not found. Choose a valid command.");
+                    known = false;
+                }
+            }
+
+            if (known && start != 0) {
+                Metrics.latency("cmd." + input).record(System.nanoTime() - start - (stdin.getWaitedNanos() - waited));
+            }
+        }
+
+    }
+
+    // Wait for the startup load, report it, and set up what the REPL needs a loaded board for:
+    // the registry entry is keyed by the loaded board's name, and the background saver must not
+    // start while load() may still be waiting on it.
+    private static boolean finishLoad(Board board, CompletableFuture<Boolean> loading, BoardRegistry registry,
+                                      ReplicationLeader leader, int replicatePort) {
+        reportLoad(board, loading.join());
+        startReplication(board, leader, replicatePort);
+        registry.add(board);
+        // write snapshots off the REPL thread so prompts never wait on the disk
+        board.startBackgroundSaver();
+        board.setUndoLimit(UNDO_STEPS);
+        return true;
+    }
+
+    private static void reportLoad(Board board, boolean loaded) {
+        if (loaded) {
+            System.out.printf("Board '" + board.getBoardName() + "' successfully loaded from %s%n", board.getSaveFilePath());
+        } else {
+            System.out.println("No board found. Starting a new board");
+            System.out.println();
+        }
+    }
+
+    private static void startReplication(Board board, ReplicationLeader leader, int port) {
+        if (leader == null) {
+            return;
+        }
+        try {
+            System.out.println("Replicating board changes to followers on " + hostAndPort(leader.start(board, port)));
+        } catch (IOException e) {
+            System.out.println("Could not start replication on port " + port + ": " + e.getMessage());
+        }
+    }
+
+    // Keep a read-only copy of a leader's board, answering list/find from stdin and GETs over
+    // HTTP when --serve is given, until 'quit'. 'promote' stops following and makes the copy
+    // this process's own board: saved to disk, and writable over HTTP.
+    private static void follow(Scanner scanner, int leaderPort, int servePort) {
+        ReplicationFollower follower = new ReplicationFollower(leaderPort);
+        Board persistence = new Board();
+        BoardServer server = null;
+        if (servePort >= 0) {
+            server = new BoardServer(follower.getBoard(), persistence);
+            server.setReadOnly(true);
+            follower.setSnapshotListener(server::setBoard);
+            try {
+                System.out.println("Serving the replica read-only on http://" + hostAndPort(server.start(servePort)));
+            } catch (IOException e) {
+                System.out.println("Could not start server on port " + servePort + ": " + e.getMessage());
+                return;
+            }
+        }
+        follower.start();
+        System.out.println("Following the leader on " + hostAndPort(follower.getLeader()));
+        System.out.println("Commands: list [<col>] | find <id> | status | promote | save | quit");
+
+        boolean promoted = false;
+        while (scanner.hasNextLine()) {
+            String[] words = scanner.nextLine().trim().toLowerCase().split("\\s+");
+            ConcurrentBoard replica = follower.getBoard();
+            switch (words[0]) {
+                case "list" -> {
+                    Column only = words.length > 1 ? Column.fromString(words[1]) : null;
+                    if (words.length > 1 && only == null) {
+                        System.out.println("Usage: list [todo | doing | done]");
+                        break;
+                    }
+                    for (Column col : Column.values()) {
+                        if (only == null) {
+                            TaskViews.printSection("[" + col + "]", replica.get(col), col);
+                        } else if (col == only) {
+                            TaskViews.printList(replica.get(col), col);
+                        }
+                    }
+                }
+                case "find" -> {
+                    long id = words.length > 1 && words[1].matches("\\d+") ? Long.parseLong(words[1]) : -1;
+                    Task t = id >= 0 ? replica.find(id) : null;
+                    Column col = t != null ? replica.getCol(id) : null;
+                    System.out.println(id < 0 ? "Usage: find <id>" : col == null ? "Task not found" : TaskViews.formatTaskLine(t, col));
+                }
+                case "status" -> System.out.println(promoted
+                        ? "Promoted; no longer following"
+                        : (follower.isConnected() ? "Connected to " : "Reconnecting to ") + hostAndPort(follower.getLeader())
+                                + ", at change #" + follower.getAppliedSeq() + " of board '" + replica.getBoardName() + "'");
+                case "promote" -> {
+                    if (promoted) {
+                        System.out.println("Already promoted");
+                        break;
+                    }
+                    follower.stop();
+                    promoted = true;
+                    if (server != null) {
+                        // the server may have been handed a newer replica than `replica` just before stop()
+                        server.setBoard(follower.getBoard());
+                        server.setReadOnly(false);
+                    }
+                    System.out.println("Stopped following at change #" + follower.getAppliedSeq() + "; board '"
+                            + follower.getBoard().getBoardName() + "' is now this process's own");
+                    System.out.println(savePromoted(follower.getBoard(), persistence, server)
+                            ? "Board saved to " + persistence.getSaveFilePath() : "Failed to save board");
+                }
+                case "save" -> {
+                    if (!promoted) {
+                        System.out.println("A follower doesn't save; 'promote' it first");
+                        break;
+                    }
+                    System.out.println(savePromoted(follower.getBoard(), persistence, server)
+                            ? "Board saved to " + persistence.getSaveFilePath() : "Failed to save board");
+                }
+                case "quit" -> {
+                    follower.stop();
+                    if (server != null) {
+                        server.stop();
+                    }
+                    if (promoted) {
+                        System.out.println(savePromoted(follower.getBoard(), persistence, server)
+                                ? "Board saved to " + persistence.getSaveFilePath() : "Failed to save board");
+                        persistence.releaseIds();
+                    }
+                    System.out.println("Thanks for using this program!");
                     return;
                 }
-                default -> System.out.println("Command not found. Choose a valid command.");
+                case "" -> {
+                }
+                default -> System.out.println("A follower only understands list, find, status, promote, save and quit");
             }
         }
+        follower.stop();
+    }
+
+    // the server saves its own board; without one, the replica is copied into persistence here
+    private static boolean savePromoted(ConcurrentBoard replica, Board persistence, BoardServer server) {
+        if (server != null) {
+            return server.save();
+        }
+        persistence.loadFrom(replica.toSaveData());
+        return persistence.save();
+    }
+
+    // commands that can run while the board is still loading
+    private static boolean needsBoard(String command) {
+        return switch (command) {
+            case "", "help", "version", "stats" -> false;
+            default -> true;
+        };
+    }
+
+    // Serve the board over HTTP until 'quit' is typed. If stdin is closed (e.g. running in the
+    // background) the server just keeps running.
+    private static void serve(Board board, Scanner scanner, int port) {
+        BoardServer server = new BoardServer(board);
+        try {
+            System.out.println("Serving board '" + board.getBoardName() + "' on http://" + hostAndPort(server.start(port)));
+        } catch (IOException e) {
+            System.out.println("Could not start server on port " + port + ": " + e.getMessage());
+            return;
+        }
+        System.out.println("Type 'save' to save or 'quit' to save and stop the server");
+
+        while (scanner.hasNextLine()) {
+            String input = scanner.nextLine().trim().toLowerCase();
+            switch (input) {
+                case "save" -> System.out.println(server.save() ? "Board saved to " + board.getSaveFilePath() : "Failed to save board");
+                case "quit" -> {
+                    server.stop();
+                    System.out.println(server.save() ? "Board saved to " + board.getSaveFilePath() : "Failed to save board");
+                    board.releaseIds();
+                    System.out.println("Thanks for using this program!");
+                    return;
+                }
+                case "" -> {
+                }
+                default -> System.out.println("Server mode only understands 'save' and 'quit'");
+            }
+        }
+    }
+
+    // Apply the commands in a file (or stdin for "-") and save once at the end
+    private static void runBatch(Board board, String batchFile, int saveEvery) {
+        BatchRunner runner = new BatchRunner(board, saveEvery);
+        boolean saved;
+        try (BufferedReader in = batchFile.equals("-")
+                ? new BufferedReader(new InputStreamReader(System.in, StandardCharsets.UTF_8))
+                : Files.newBufferedReader(Paths.get(batchFile), StandardCharsets.UTF_8)) {
+            saved = runner.run(in);
+            board.releaseIds();
+        } catch (IOException e) {
+            System.out.println("Could not read batch file " + batchFile + ": " + e.getMessage());
+            return;
+        }
+
+        System.out.println("Applied " + runner.getApplied() + " commands, " + runner.getFailed() + " failed");
+        System.out.println(saved ? "Board saved to " + board.getSaveFilePath() : "Failed to save board");
+    }
 
+    private static String hostAndPort(java.net.InetSocketAddress address) {
+        return address.getAddress().getHostAddress() + ":" + address.getPort();
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,130 @@
+package com.charlesfitzgerald.kanban;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.Map;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+// Named histograms for command and board operation latencies, save sizes and so on.
+//
+// Collection is off unless enabled at startup (--stats or --stats-file). While off,
+// Metrics.start() returns 0 without reading the clock and Histogram.recordSince(0) returns
+// straight away, so an instrumented operation costs one static field read and a branch.
+public class Metrics {
+    private static final Map<String, Histogram> HISTOGRAMS = new ConcurrentSkipListMap<>();
+    private static final DateTimeFormatter TIMESTAMP = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
+
+    // only set at startup, before any other thread is started, so it doesn't need to be volatile
+    private static boolean enabled;
+    private static ScheduledExecutorService dumper;
+    private static Path dumpFile;
+
+    private Metrics() {}
+
+    public static void enable() {
+        enabled = true;
+    }
+
+    public static boolean isEnabled() {
+        return enabled;
+    }
+
+    // clock reading to hand to Histogram.recordSince, or 0 while stats are off
+    public static long start() {
+        return enabled ? System.nanoTime() : 0;
+    }
+
+    public static Histogram latency(String name) {
+        return HISTOGRAMS.computeIfAbsent(name, n -> new Histogram(n, Histogram.Unit.NANOS));
+    }
+
+    public static Histogram bytes(String name) {
+        return HISTOGRAMS.computeIfAbsent(name, n -> new Histogram(n, Histogram.Unit.BYTES));
+    }
+
+    public static void reset() {
+        for (Histogram h : HISTOGRAMS.values()) {
+            h.reset();
+        }
+    }
+
+    // one line per histogram that has recorded anything, in name order
+    public static String report() {
+        StringBuilder sb = new StringBuilder();
+        sb.append(String.format("%-22s %9s %10s %10s %10s %10s%n", "operation", "count", "p50", "p99", "max", "total"));
+        boolean any = false;
+        for (Histogram h : HISTOGRAMS.values()) {
+            long count = h.count();
+            if (count == 0) {
+                continue;
+            }
+            any = true;
+            sb.append(String.format("%-22s %9d %10s %10s %10s %10s%n", h.getName(), count,
+                    format(h.getUnit(), h.percentile(0.50)), format(h.getUnit(), h.percentile(0.99)),
+                    format(h.getUnit(), h.max()), format(h.getUnit(), h.total())));
+        }
+        if (!any) {
+            sb.append("(nothing recorded yet)").append(System.lineSeparator());
+        }
+        return sb.toString();
+    }
+
+    // Rewrite the report to `file` every `intervalSeconds` on a background thread, and once
+    // more when stopDump() is called.
+    public static synchronized void startDump(Path file, long intervalSeconds) {
+        stopDump();
+        dumpFile = file;
+        dumper = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "stats-dump");
+            t.setDaemon(true);
+            return t;
+        });
+        dumper.scheduleAtFixedRate(Metrics::dump, intervalSeconds, intervalSeconds, TimeUnit.SECONDS);
+    }
+
+    public static synchronized void stopDump() {
+        if (dumper == null) {
+            return;
+        }
+        dumper.shutdownNow();
+        dumper = null;
+        dump();
+        dumpFile = null;
+    }
+
+    private static synchronized void dump() {
+        if (dumpFile == null) {
+            return;
+        }
+        byte[] report = ("Stats at " + LocalDateTime.now().format(TIMESTAMP) + System.lineSeparator() + report())
+                .getBytes(StandardCharsets.UTF_8);
+        try {
+            AtomicFile.write(dumpFile, out -> out.write(report));
+        } catch (IOException e) {
+            // the next interval tries again
+        }
+    }
+
+    private static String format(Histogram.Unit unit, long value) {
+        if (unit == Histogram.Unit.BYTES) {
+            if (value < 1024) {
+                return value + " B";
+            }
+            return value < 1024 * 1024 ? String.format("%.1f KB", value / 1024.0)
+                    : String.format("%.1f MB", value / (1024.0 * 1024));
+        }
+        if (value < 1_000) {
+            return value + " ns";
+        }
+        if (value < 1_000_000) {
+            return String.format("%.1f us", value / 1e3);
+        }
+        return value < 1_000_000_000 ? String.format("%.1f ms", value / 1e6) : String.format("%.2f s", value / 1e9);
+    }
+}
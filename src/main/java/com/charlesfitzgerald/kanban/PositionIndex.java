@@ -0,0 +1,144 @@
+package com.charlesfitzgerald.kanban;
+
+import java.util.Arrays;
+
+// Open-addressing hash index from task id to (column, position) for storage that has no Task
+// objects to point at. Same layout and probing as TaskIndex, minus the task references.
+public class PositionIndex {
+    private static final int MIN_CAPACITY = 16;
+    private static final byte EMPTY = -1;
+    private static final Column[] COLUMNS = Column.values();
+
+    private long[] keys;
+    private byte[] columns;
+    private int[] positions;
+    private int mask;
+    private int size;
+
+    public PositionIndex() {
+        this(MIN_CAPACITY);
+    }
+
+    public PositionIndex(int expectedSize) {
+        allocate(capacityFor(expectedSize));
+    }
+
+    public int size() {
+        return size;
+    }
+
+    // rough heap footprint of the table, empty slots included
+    public long estimateBytes() {
+        return HeapEstimate.array(keys.length, Long.BYTES) + HeapEstimate.array(columns.length, 1)
+                + HeapEstimate.array(positions.length, Integer.BYTES);
+    }
+
+    public Column column(long id) {
+        int slot = slotOf(id);
+        return slot < 0 ? null : COLUMNS[columns[slot]];
+    }
+
+    // last known position of the task in its column, or -1 when the id is not indexed
+    public int position(long id) {
+        int slot = slotOf(id);
+        return slot < 0 ? -1 : positions[slot];
+    }
+
+    // insert or replace the entry for the id
+    public void put(long id, Column column, int position) {
+        if ((size + 1) * 4L > keys.length * 3L) {
+            rehash(keys.length * 2);
+        }
+
+        int slot = hash(id) & mask;
+        while (columns[slot] != EMPTY) {
+            if (keys[slot] == id) {
+                break;
+            }
+            slot = (slot + 1) & mask;
+        }
+
+        if (columns[slot] == EMPTY) {
+            size++;
+        }
+        keys[slot] = id;
+        columns[slot] = (byte) column.ordinal();
+        positions[slot] = position;
+    }
+
+    public boolean remove(long id) {
+        int slot = slotOf(id);
+        if (slot < 0) {
+            return false;
+        }
+
+        // backward-shift deletion, as in TaskIndex
+        int hole = slot;
+        int next = (hole + 1) & mask;
+        while (columns[next] != EMPTY) {
+            int home = hash(keys[next]) & mask;
+            if (((next - home) & mask) >= ((next - hole) & mask)) {
+                keys[hole] = keys[next];
+                columns[hole] = columns[next];
+                positions[hole] = positions[next];
+                hole = next;
+            }
+            next = (next + 1) & mask;
+        }
+        columns[hole] = EMPTY;
+        size--;
+        return true;
+    }
+
+    private int slotOf(long id) {
+        int slot = hash(id) & mask;
+        while (columns[slot] != EMPTY) {
+            if (keys[slot] == id) {
+                return slot;
+            }
+            slot = (slot + 1) & mask;
+        }
+        return -1;
+    }
+
+    private void rehash(int newCapacity) {
+        long[] oldKeys = keys;
+        byte[] oldColumns = columns;
+        int[] oldPositions = positions;
+
+        allocate(newCapacity);
+        for (int i = 0; i < oldColumns.length; i++) {
+            if (oldColumns[i] != EMPTY) {
+                int slot = hash(oldKeys[i]) & mask;
+                while (columns[slot] != EMPTY) {
+                    slot = (slot + 1) & mask;
+                }
+                keys[slot] = oldKeys[i];
+                columns[slot] = oldColumns[i];
+                positions[slot] = oldPositions[i];
+                size++;
+            }
+        }
+    }
+
+    private void allocate(int capacity) {
+        keys = new long[capacity];
+        columns = new byte[capacity];
+        Arrays.fill(columns, EMPTY);
+        positions = new int[capacity];
+        mask = capacity - 1;
+        size = 0;
+    }
+
+    // smallest power of two that keeps the load factor at or under 3/4
+    private static int capacityFor(int expectedSize) {
+        long needed = Math.max(MIN_CAPACITY, (expectedSize * 4L + 2) / 3);
+        int capacity = Integer.highestOneBit((int) Math.min(needed, 1 << 30));
+        return capacity < needed ? capacity << 1 : capacity;
+    }
+
+    private static int hash(long id) {
+        long h = id * 0x9E3779B97F4A7C15L;
+        return (int) (h ^ (h >>> 32));
+    }
+}
@@ -0,0 +1,176 @@
+package com.charlesfitzgerald.kanban;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.util.function.Consumer;
+
+// Keeps a read-only replica of a leader's board by applying the changes it streams, in order,
+// on one background thread. See ReplicationLeader for the protocol.
+//
+// The replica is a ConcurrentBoard, so it can be read from any thread while changes are being
+// applied. A snapshot from the leader replaces it with a new ConcurrentBoard, handed to the
+// snapshot listener so whatever serves reads can switch over. When the connection drops, the
+// follower keeps serving what it has and reconnects with its log id and sequence, so a short
+// outage only costs the records it missed.
+public class ReplicationFollower {
+    private static final long RETRY_MILLIS = 1000;
+
+    private final InetSocketAddress leader;
+    private volatile ConcurrentBoard board = new ConcurrentBoard();
+    private volatile long logId;
+    private volatile long appliedSeq;
+    private volatile boolean connected;
+    private volatile boolean stopped;
+    private volatile Consumer<ConcurrentBoard> snapshotListener = b -> {};
+    private volatile Socket socket;
+    private Thread thread;
+
+    public ReplicationFollower(int leaderPort) {
+        this(new InetSocketAddress(InetAddress.getLoopbackAddress(), leaderPort));
+    }
+
+    public ReplicationFollower(InetSocketAddress leader) {
+        this.leader = leader;
+    }
+
+    // called on the follower thread with every replica that replaces the previous one
+    public void setSnapshotListener(Consumer<ConcurrentBoard> snapshotListener) {
+        this.snapshotListener = snapshotListener;
+    }
+
+    public void start() {
+        thread = Thread.ofPlatform().name("replication-follower").daemon().start(this::followLoop);
+    }
+
+    // Stop following. The replica keeps whatever it had applied and stays usable, e.g. to be
+    // promoted to the board a new leader serves.
+    public void stop() {
+        stopped = true;
+        Socket s = socket;
+        if (s != null) {
+            try {
+                s.close();
+            } catch (IOException e) {
+                // closing anyway
+            }
+        }
+        if (thread != null) {
+            thread.interrupt();
+            try {
+                thread.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    public ConcurrentBoard getBoard() {
+        return board;
+    }
+
+    public InetSocketAddress getLeader() {
+        return leader;
+    }
+
+    public boolean isConnected() {
+        return connected;
+    }
+
+    // sequence number of the last change applied; 0 before the first snapshot
+    public long getAppliedSeq() {
+        return appliedSeq;
+    }
+
+    private void followLoop() {
+        while (!stopped) {
+            try {
+                follow();
+            } catch (IOException e) {
+                // leader gone or stream broken; retry below
+            } finally {
+                connected = false;
+            }
+            if (stopped) {
+                return;
+            }
+            try {
+                Thread.sleep(RETRY_MILLIS);
+            } catch (InterruptedException e) {
+                return;
+            }
+        }
+    }
+
+    private void follow() throws IOException {
+        try (Socket s = new Socket(leader.getAddress(), leader.getPort())) {
+            socket = s;
+            if (stopped) {
+                return;
+            }
+            s.setTcpNoDelay(true);
+            DataOutputStream out = new DataOutputStream(new BufferedOutputStream(s.getOutputStream()));
+            DataInputStream in = new DataInputStream(new BufferedInputStream(s.getInputStream()));
+            out.writeInt(ReplicationLeader.HELLO);
+            out.writeLong(logId);
+            out.writeLong(appliedSeq);
+            out.flush();
+            connected = true;
+
+            while (true) {
+                byte type = in.readByte();
+                if (type == ReplicationLeader.SNAPSHOT) {
+                    readSnapshot(in);
+                } else if (type == ReplicationLeader.RECORDS) {
+                    readRecords(in);
+                } else {
+                    throw new IOException("Unknown replication message " + type);
+                }
+            }
+        } finally {
+            socket = null;
+        }
+    }
+
+    private void readSnapshot(DataInputStream in) throws IOException {
+        long snapshotLogId = in.readLong();
+        long seq = in.readLong();
+        byte[] bytes = new byte[in.readInt()];
+        in.readFully(bytes);
+
+        ConcurrentBoard replica = ConcurrentBoard.fromSaveData(BinarySnapshot.read(bytes));
+        board = replica;
+        logId = snapshotLogId;
+        appliedSeq = seq;
+        snapshotListener.accept(replica);
+    }
+
+    private void readRecords(DataInputStream in) throws IOException {
+        long first = in.readLong();
+        int count = in.readInt();
+        byte[] bytes = new byte[in.readInt()];
+        in.readFully(bytes);
+        if (first != appliedSeq + 1) {
+            // can't happen with a well-behaved leader; reconnecting resynchronises
+            throw new IOException("Expected change #" + (appliedSeq + 1) + " but got #" + first);
+        }
+
+        ConcurrentBoard replica = board;
+        ByteBuffer buf = ByteBuffer.wrap(bytes);
+        try {
+            for (int i = 0; i < count; i++) {
+                BoardJournal.Record.read(buf).applyTo(replica);
+                appliedSeq = first + i;
+            }
+        } catch (BufferUnderflowException e) {
+            throw new IOException("Truncated change #" + (appliedSeq + 1), e);
+        }
+    }
+}
@@ -0,0 +1,299 @@
+package com.charlesfitzgerald.kanban;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+// Streams every change made to a Board to follower processes over loopback TCP.
+//
+// Each add/edit/move/remove is encoded as a BoardJournal record and given the next sequence
+// number. Records are kept in memory until they pass maxTailBytes; then the older half is
+// applied to `base`, a private copy of the board as of sequence baseSeq, and dropped. A
+// follower that connects is sent only the records after the sequence it already has, if those
+// are still kept; otherwise it gets base as a binary snapshot followed by every record since.
+// Followers too far behind for the kept records are disconnected and catch up the same way.
+//
+// Records are recorded on the thread that changes the board; each follower has its own sender
+// thread, so a slow follower never holds up the board. A log id picked at random on start and
+// again on restart() tells followers whether their sequence numbers still mean anything.
+//
+// Wire format, all numbers big-endian:
+//   follower -> leader  int HELLO, long log id (0 if none), long last applied sequence
+//   leader -> follower  SNAPSHOT: byte 'S', long log id, long seq, int length, snapshot bytes
+//                       RECORDS:  byte 'R', long first seq, int count, int length, record bytes
+public class ReplicationLeader {
+    static final int HELLO = 0x4B425231; // "KBR1"
+    static final byte SNAPSHOT = 'S';
+    static final byte RECORDS = 'R';
+    private static final long DEFAULT_MAX_TAIL_BYTES = 4 << 20;
+    // records sent to a follower in one message at most
+    private static final int MAX_BATCH = 1024;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition appended = lock.newCondition();
+    private final long maxTailBytes;
+    private final ByteArrayOutputStream recordBytes = new ByteArrayOutputStream();
+    private final DataOutputStream recordOut = new DataOutputStream(recordBytes);
+    private final Set<Socket> followers = ConcurrentHashMap.newKeySet();
+
+    // guarded by lock
+    private long logId;
+    private ConcurrentBoard base;
+    private long baseSeq;
+    private final List<byte[]> tail = new ArrayList<>();
+    private long tailBytes;
+    private byte[] baseSnapshot;
+
+    private ServerSocket serverSocket;
+
+    public ReplicationLeader() {
+        this(DEFAULT_MAX_TAIL_BYTES);
+    }
+
+    public ReplicationLeader(long maxTailBytes) {
+        this.maxTailBytes = maxTailBytes;
+    }
+
+    // Start accepting followers on the loopback interface (port 0 picks a free port), shipping
+    // the board's changes from now on. Attaches itself to the board.
+    public InetSocketAddress start(Board board, int port) throws IOException {
+        serverSocket = new ServerSocket(port, 50, InetAddress.getLoopbackAddress());
+        board.setReplication(this);
+        Thread.ofPlatform().name("replication-acceptor").daemon().start(this::acceptLoop);
+        return (InetSocketAddress) serverSocket.getLocalSocketAddress();
+    }
+
+    public void stop() {
+        try {
+            if (serverSocket != null) {
+                serverSocket.close();
+            }
+        } catch (IOException e) {
+            // closing anyway
+        }
+        for (Socket s : followers) {
+            closeQuietly(s);
+        }
+    }
+
+    public int followerCount() {
+        return followers.size();
+    }
+
+    // sequence number of the latest change
+    public long lastSeq() {
+        lock.lock();
+        try {
+            return baseSeq + tail.size();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // Begin a new log from the board's current contents, for when the board was replaced
+    // wholesale (load, switch). Followers notice the new log id and take a snapshot.
+    public void restart(Board board) {
+        ConcurrentBoard copy = ConcurrentBoard.fromSaveData(copyTasks(board));
+        lock.lock();
+        try {
+            logId = ThreadLocalRandom.current().nextLong() | 1;
+            base = copy;
+            baseSeq = 0;
+            tail.clear();
+            tailBytes = 0;
+            baseSnapshot = null;
+            appended.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public void recordAdd(Task t, Column col) {
+        BoardJournal.writeAdd(recordOut, t, col);
+        append();
+    }
+
+    public void recordEdit(Task t) {
+        BoardJournal.writeEdit(recordOut, t);
+        append();
+    }
+
+    public void recordMove(long id, Column to) {
+        BoardJournal.writeMove(recordOut, id, to);
+        append();
+    }
+
+    public void recordRemove(long id) {
+        BoardJournal.writeRemove(recordOut, id);
+        append();
+    }
+
+    private void append() {
+        byte[] record = recordBytes.toByteArray();
+        recordBytes.reset();
+        lock.lock();
+        try {
+            tail.add(record);
+            tailBytes += record.length;
+            if (tailBytes > maxTailBytes) {
+                compact();
+            }
+            appended.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // fold the older half of the kept records into base
+    private void compact() {
+        int folded = tail.size() / 2;
+        for (int i = 0; i < folded; i++) {
+            byte[] record = tail.get(i);
+            try {
+                BoardJournal.Record.read(ByteBuffer.wrap(record)).applyTo(base);
+            } catch (IOException e) {
+                throw new IllegalStateException(e); // encoded by this class, can't be corrupt
+            }
+            tailBytes -= record.length;
+        }
+        tail.subList(0, folded).clear();
+        baseSeq += folded;
+        baseSnapshot = null;
+    }
+
+    private void acceptLoop() {
+        while (!serverSocket.isClosed()) {
+            try {
+                Socket socket = serverSocket.accept();
+                socket.setTcpNoDelay(true);
+                followers.add(socket);
+                Thread.ofVirtual().name("replication-sender").start(() -> serve(socket));
+            } catch (IOException e) {
+                // closed by stop(), or a failed accept; the loop condition decides
+            }
+        }
+    }
+
+    private void serve(Socket socket) {
+        try (socket) {
+            DataInputStream in = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+            DataOutputStream out = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+            if (in.readInt() != HELLO) {
+                return;
+            }
+            long followerLogId = in.readLong();
+            long followerSeq = in.readLong();
+
+            long servingLogId;
+            long sent;
+            byte[] snapshot = null;
+            lock.lock();
+            try {
+                servingLogId = logId;
+                if (followerLogId == logId && followerSeq >= baseSeq && followerSeq <= baseSeq + tail.size()) {
+                    sent = followerSeq;
+                } else {
+                    snapshot = baseSnapshot();
+                    sent = baseSeq;
+                }
+            } finally {
+                lock.unlock();
+            }
+
+            if (snapshot != null) {
+                out.writeByte(SNAPSHOT);
+                out.writeLong(servingLogId);
+                out.writeLong(sent);
+                out.writeInt(snapshot.length);
+                out.write(snapshot);
+                out.flush();
+            }
+
+            while (true) {
+                List<byte[]> batch;
+                lock.lock();
+                try {
+                    while (logId == servingLogId && sent == baseSeq + tail.size()) {
+                        appended.await();
+                    }
+                    // a new log, or records this follower still needs were folded into base:
+                    // hang up and let it reconnect for a snapshot
+                    if (logId != servingLogId || sent < baseSeq) {
+                        return;
+                    }
+                    int from = (int) (sent - baseSeq);
+                    batch = new ArrayList<>(tail.subList(from, Math.min(tail.size(), from + MAX_BATCH)));
+                } finally {
+                    lock.unlock();
+                }
+
+                int length = 0;
+                for (byte[] record : batch) {
+                    length += record.length;
+                }
+                out.writeByte(RECORDS);
+                out.writeLong(sent + 1);
+                out.writeInt(batch.size());
+                out.writeInt(length);
+                for (byte[] record : batch) {
+                    out.write(record);
+                }
+                out.flush();
+                sent += batch.size();
+            }
+        } catch (IOException e) {
+            // follower went away; it reconnects with the sequence it has
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            followers.remove(socket);
+        }
+    }
+
+    // Base encoded as a binary snapshot, kept until base next changes so followers joining
+    // together share one encoding. Called with the lock held, so changes wait while it runs.
+    private byte[] baseSnapshot() throws IOException {
+        if (baseSnapshot == null) {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            BinarySnapshot.write(bytes, base.toSaveData());
+            baseSnapshot = bytes.toByteArray();
+        }
+        return baseSnapshot;
+    }
+
+    // independent copies of the tasks, so base never shares a Task the board goes on to edit
+    private static SaveData copyTasks(Board board) {
+        List<List<Task>> copies = new ArrayList<>();
+        for (Column col : Column.values()) {
+            List<Task> copy = new ArrayList<>(board.get(col).size());
+            for (Task t : board.get(col)) {
+                copy.add(new Task(t.getId(), t.getTitle(), t.getDescription(), t.getPriority()));
+            }
+            copies.add(copy);
+        }
+        return SaveData.wrap(copies.get(0), copies.get(1), copies.get(2), board.getBoardName(), -1, board.getNextId());
+    }
+
+    private static void closeQuietly(Socket socket) {
+        try {
+            socket.close();
+        } catch (IOException e) {
+            // already closed
+        }
+    }
+}
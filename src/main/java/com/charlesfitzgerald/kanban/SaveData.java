@@ -4,10 +4,13 @@ import java.util.ArrayList;
 import java.util.List;
 
 public class SaveData {
-    private final ArrayList<Task> todo;
-    private final ArrayList<Task> doing;
-    private final ArrayList<Task> done;
+    private final List<Task> todo;
+    private final List<Task> doing;
+    private final List<Task> done;
     private final String boardName;
+    private final transient long maxId;
+    // first id that hadn't been handed out when the board was saved, or -1 for files written before it was stored
+    private final long nextId;
 
     // Default constructor (starts empty)
     public SaveData(String boardName) {
@@ -16,13 +19,27 @@ public class SaveData {
 
     // Constructor that accepts starting tasks
     public SaveData(List<Task> todo, List<Task> doing, List<Task> done, String boardName) {
-        this.todo = new ArrayList<>(todo);
-        this.doing = new ArrayList<>(doing);
-        this.done = new ArrayList<>(done);
-        this.boardName = boardName;
+        this(todo, doing, done, boardName, -1);
+    }
+
+    // Constructor that also records the board's next id
+    public SaveData(List<Task> todo, List<Task> doing, List<Task> done, String boardName, long nextId) {
+        this(new ArrayList<>(todo), new ArrayList<>(doing), new ArrayList<>(done), boardName, -1, nextId);
     }
 
+    private SaveData(List<Task> todo, List<Task> doing, List<Task> done, String boardName, long maxId, long nextId) {
+        this.todo = todo;
+        this.doing = doing;
+        this.done = done;
+        this.boardName = boardName;
+        this.maxId = maxId;
+        this.nextId = nextId;
+    }
 
+    // wraps the given lists without copying them; maxId and nextId are -1 when they are not known
+    static SaveData wrap(List<Task> todo, List<Task> doing, List<Task> done, String boardName, long maxId, long nextId) {
+        return new SaveData(todo, doing, done, boardName, maxId, nextId);
+    }
 
     public List<Task> getTodo() {
         return todo;
@@ -38,5 +55,15 @@ public class SaveData {
 
     public String getBoardName() { return boardName;}
 
+    // highest task id seen while decoding, or -1 if this data wasn't read from a file
+    public long getMaxId() {
+        return maxId;
+    }
+
+    // next id to hand out, or -1 if the file didn't record it
+    public long getNextId() {
+        return nextId;
+    }
+
 
 }
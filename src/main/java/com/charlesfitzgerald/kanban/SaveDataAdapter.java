@@ -0,0 +1,109 @@
+package com.charlesfitzgerald.kanban;
+
+import com.google.gson.TypeAdapter;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+// Streams a whole board in one pass. Column lists are filled as tasks are decoded and the
+// highest id is tracked along the way, so loading never needs a second scan or copy.
+// Files written before "nextId" was stored fall back to that highest id.
+public class SaveDataAdapter extends TypeAdapter<SaveData> {
+    private final TaskAdapter taskAdapter;
+
+    public SaveDataAdapter() {
+        this(new TaskAdapter());
+    }
+
+    public SaveDataAdapter(TaskAdapter taskAdapter) {
+        this.taskAdapter = taskAdapter;
+    }
+
+    @Override
+    public void write(JsonWriter out, SaveData data) throws IOException {
+        if (data == null) {
+            out.nullValue();
+            return;
+        }
+
+        out.beginObject();
+        writeColumn(out, "todo", data.getTodo());
+        writeColumn(out, "doing", data.getDoing());
+        writeColumn(out, "done", data.getDone());
+        out.name("boardName").value(data.getBoardName());
+        if (data.getNextId() >= 0) {
+            out.name("nextId").value(data.getNextId());
+        }
+        out.endObject();
+    }
+
+    @Override
+    public SaveData read(JsonReader in) throws IOException {
+        if (in.peek() == JsonToken.NULL) {
+            in.nextNull();
+            return null;
+        }
+
+        List<Task> todo = new ArrayList<>();
+        List<Task> doing = new ArrayList<>();
+        List<Task> done = new ArrayList<>();
+        String boardName = null;
+        long maxId = 0;
+        long nextId = -1;
+
+        in.beginObject();
+        while (in.hasNext()) {
+            switch (in.nextName()) {
+                case "todo" -> maxId = Math.max(maxId, readColumn(in, todo));
+                case "doing" -> maxId = Math.max(maxId, readColumn(in, doing));
+                case "done" -> maxId = Math.max(maxId, readColumn(in, done));
+                case "boardName" -> {
+                    if (in.peek() == JsonToken.NULL) {
+                        in.nextNull();
+                    } else {
+                        boardName = in.nextString();
+                    }
+                }
+                case "nextId" -> nextId = in.nextLong();
+                default -> in.skipValue();
+            }
+        }
+        in.endObject();
+
+        return SaveData.wrap(todo, doing, done, boardName, maxId, nextId);
+    }
+
+    private void writeColumn(JsonWriter out, String name, List<Task> tasks) throws IOException {
+        out.name(name).beginArray();
+        for (Task t : tasks) {
+            taskAdapter.write(out, t);
+        }
+        out.endArray();
+    }
+
+    // appends every task in the array to the list and returns the largest id seen
+    private long readColumn(JsonReader in, List<Task> into) throws IOException {
+        long maxId = 0;
+        if (in.peek() == JsonToken.NULL) {
+            in.nextNull();
+            return maxId;
+        }
+
+        in.beginArray();
+        while (in.hasNext()) {
+            Task t = taskAdapter.read(in);
+            if (t != null) {
+                into.add(t);
+                if (t.getId() > maxId) {
+                    maxId = t.getId();
+                }
+            }
+        }
+        in.endArray();
+        return maxId;
+    }
+}
@@ -0,0 +1,18 @@
+package com.charlesfitzgerald.kanban;
+
+public enum SnapshotFormat {
+    JSON(".json"),
+    BINARY(".kbb"),
+    // the JSON snapshot, gzip-compressed as it is written
+    GZIP(".json.gz");
+
+    private final String extension;
+
+    SnapshotFormat(String extension) {
+        this.extension = extension;
+    }
+
+    public String extension() {
+        return extension;
+    }
+}
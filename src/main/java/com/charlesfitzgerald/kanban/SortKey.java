@@ -1,12 +1,17 @@
 package com.charlesfitzgerald.kanban;
 
+import java.util.ArrayList;
 import java.util.Comparator;
 import java.util.HashSet;
+import java.util.List;
+import java.util.PriorityQueue;
 import java.util.Set;
 
 public enum SortKey {
     ID(Comparator.comparingLong(Task::getId), "i", "id"),
-    TITLE(Comparator.comparing(Task::getTitle, String.CASE_INSENSITIVE_ORDER).thenComparingLong(Task::getId), "t", "title"),
+    // snapshots may hold tasks without a title; those sort first
+    TITLE(Comparator.comparing(Task::getTitle, Comparator.nullsFirst(String.CASE_INSENSITIVE_ORDER))
+            .thenComparingLong(Task::getId), "t", "title"),
     PRIORITY(Comparator.comparingInt(Task::getPriority).thenComparingLong(Task::getId), "p", "prio", "priority");
 
     private final Comparator<Task> cmp;
@@ -40,4 +45,30 @@ public enum SortKey {
     public Comparator<Task> comparator(boolean descending) {
         return descending ? cmp.reversed() : cmp;
     }
+
+    // The first k of the tasks in this order, picked with a bounded heap in O(n log k) so only
+    // the k kept are ever sorted. Null entries are skipped.
+    public List<Task> top(Iterable<Task> tasks, boolean descending, int k) {
+        List<Task> result = new ArrayList<>();
+        if (k <= 0) {
+            return result;
+        }
+        Comparator<Task> order = comparator(descending);
+        // heap head is the worst task kept so far; anything better replaces it
+        PriorityQueue<Task> kept = new PriorityQueue<>(Math.min(k, 1024), order.reversed());
+        for (Task t : tasks) {
+            if (t == null) {
+                continue;
+            }
+            if (kept.size() < k) {
+                kept.add(t);
+            } else if (order.compare(t, kept.peek()) < 0) {
+                kept.poll();
+                kept.add(t);
+            }
+        }
+        result.addAll(kept);
+        result.sort(order);
+        return result;
+    }
 }
\ No newline at end of file
@@ -0,0 +1,122 @@
+package com.charlesfitzgerald.kanban;
+
+import java.util.Collection;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.NavigableSet;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.stream.Stream;
+
+// Keeps every column ordered by each SortKey so sorted listings are plain iteration.
+// ID and TITLE are ordered sets; PRIORITY is a handful of per-priority buckets kept in id
+// order, since priorities only take a few distinct values.
+public class SortedViews {
+    private final Map<Column, ColumnViews> columns = new EnumMap<>(Column.class);
+
+    private static class ColumnViews {
+        final NavigableSet<Task> byId = new TreeSet<>(SortKey.ID.comparator());
+        final NavigableSet<Task> byTitle = new TreeSet<>(SortKey.TITLE.comparator());
+        final NavigableMap<Integer, NavigableSet<Task>> byPriority = new TreeMap<>();
+    }
+
+    public SortedViews() {
+        for (Column col : Column.values()) {
+            columns.put(col, new ColumnViews());
+        }
+    }
+
+    // every set is keyed on the id in the end, so a second task with the same id would vanish
+    public void add(Task t, Column col) {
+        ColumnViews views = columns.get(col);
+        if (!views.byId.add(t)) {
+            throw new IllegalStateException("Task #" + t.getId() + " is already in the sorted views");
+        }
+        views.byTitle.add(t);
+        views.byPriority.computeIfAbsent(t.getPriority(), p -> new TreeSet<>(SortKey.ID.comparator())).add(t);
+    }
+
+    // must be called before any sorted field of the task changes, while it can still be found
+    public void remove(Task t, Column col) {
+        ColumnViews views = columns.get(col);
+        views.byId.remove(t);
+        views.byTitle.remove(t);
+        NavigableSet<Task> bucket = views.byPriority.get(t.getPriority());
+        if (bucket != null) {
+            bucket.remove(t);
+            if (bucket.isEmpty()) {
+                views.byPriority.remove(t.getPriority());
+            }
+        }
+    }
+
+    // rough heap footprint: each task is an entry in the id set, the title set and one bucket
+    public long estimateBytes() {
+        long bytes = 0;
+        for (ColumnViews views : columns.values()) {
+            bytes += 3 * HeapEstimate.TREE_BYTES + 3L * views.byId.size() * HeapEstimate.TREE_ENTRY_BYTES
+                    + views.byPriority.size() * (HeapEstimate.TREE_ENTRY_BYTES + HeapEstimate.TREE_BYTES);
+        }
+        return bytes;
+    }
+
+    // tasks of the column in SortKey order; descending matches key.comparator(true)
+    public Iterable<Task> view(Column col, SortKey key, boolean descending) {
+        ColumnViews views = columns.get(col);
+        return switch (key) {
+            case ID -> descending ? views.byId.descendingSet() : views.byId;
+            case TITLE -> descending ? views.byTitle.descendingSet() : views.byTitle;
+            case PRIORITY -> descending
+                    ? () -> views.byPriority.descendingMap().values().stream()
+                            .flatMap(bucket -> bucket.descendingSet().stream()).iterator()
+                    : () -> views.byPriority.values().stream()
+                            .flatMap(Collection::stream).iterator();
+        };
+    }
+
+    // tasks of the column with a priority in [min, max], a bucket at a time
+    public Iterable<Task> priorityRange(Column col, int min, int max) {
+        if (min > max) {
+            return List.of();
+        }
+        NavigableMap<Integer, NavigableSet<Task>> range = columns.get(col).byPriority.subMap(min, true, max, true);
+        return () -> range.values().stream().flatMap(Collection::stream).iterator();
+    }
+
+    // how many tasks priorityRange() would give, from the bucket sizes
+    public int countPriority(Column col, int min, int max) {
+        if (min > max) {
+            return 0;
+        }
+        int count = 0;
+        for (NavigableSet<Task> bucket : columns.get(col).byPriority.subMap(min, true, max, true).values()) {
+            count += bucket.size();
+        }
+        return count;
+    }
+
+    // The same order as view(), starting just after `cursor`, which must be in the column.
+    // Seeking is a tree lookup, so a page costs the same however deep into the column it is.
+    public Iterable<Task> after(Column col, SortKey key, boolean descending, Task cursor) {
+        ColumnViews views = columns.get(col);
+        return switch (key) {
+            case ID -> (descending ? views.byId.descendingSet() : views.byId).tailSet(cursor, false);
+            case TITLE -> (descending ? views.byTitle.descendingSet() : views.byTitle).tailSet(cursor, false);
+            case PRIORITY -> {
+                // rest of the cursor's bucket, then the buckets that follow it
+                int priority = cursor.getPriority();
+                NavigableSet<Task> bucket = views.byPriority.get(priority);
+                if (descending) {
+                    yield () -> Stream.concat(bucket.descendingSet().tailSet(cursor, false).stream(),
+                            views.byPriority.headMap(priority, false).descendingMap().values().stream()
+                                    .flatMap(b -> b.descendingSet().stream())).iterator();
+                }
+                yield () -> Stream.concat(bucket.tailSet(cursor, false).stream(),
+                        views.byPriority.tailMap(priority, false).values().stream()
+                                .flatMap(Collection::stream)).iterator();
+            }
+        };
+    }
+}
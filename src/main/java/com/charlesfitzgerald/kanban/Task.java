@@ -44,8 +44,8 @@ public class Task {
     @Override
     public String toString() {
         return "Task{id=" + id +
-                ", title='" + title + '\'' +
-                ", description='" + description + '\'' +
+                ", title='" + getTitle() + '\'' +
+                ", description='" + getDescription() + '\'' +
                 ", priority=" + priority + '}';
     }
 }
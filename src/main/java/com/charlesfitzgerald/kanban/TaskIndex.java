@@ -0,0 +1,159 @@
+package com.charlesfitzgerald.kanban;
+
+// Open-addressing hash index from task id to (task, column, position). What the position
+// means is up to the owner: a list index for ConcurrentBoard, a TaskVector slot for Board.
+// Keys are stored as primitive longs so lookups never box a Long.
+public class TaskIndex {
+    private static final int MIN_CAPACITY = 16;
+    private static final Column[] COLUMNS = Column.values();
+
+    private long[] keys;
+    private Task[] tasks;
+    private byte[] columns;
+    private int[] positions;
+    private int mask;
+    private int size;
+
+    public TaskIndex() {
+        this(MIN_CAPACITY);
+    }
+
+    // Constructor that pre-sizes the table for an expected number of tasks
+    public TaskIndex(int expectedSize) {
+        allocate(capacityFor(expectedSize));
+    }
+
+    public int size() {
+        return size;
+    }
+
+    // rough heap footprint of the table, empty slots included
+    public long estimateBytes() {
+        return HeapEstimate.array(keys.length, Long.BYTES) + HeapEstimate.array(tasks.length, HeapEstimate.REFERENCE_BYTES)
+                + HeapEstimate.array(columns.length, 1) + HeapEstimate.array(positions.length, Integer.BYTES);
+    }
+
+    public Task get(long id) {
+        int slot = slotOf(id);
+        return slot < 0 ? null : tasks[slot];
+    }
+
+    public Column column(long id) {
+        int slot = slotOf(id);
+        return slot < 0 ? null : COLUMNS[columns[slot]];
+    }
+
+    // position stored for the task, or -1 when the id is not indexed
+    public int position(long id) {
+        int slot = slotOf(id);
+        return slot < 0 ? -1 : positions[slot];
+    }
+
+    // insert or replace the entry for the task's id
+    public void put(Task task, Column column, int position) {
+        if ((size + 1) * 4L > keys.length * 3L) {
+            rehash(keys.length * 2);
+        }
+
+        long id = task.getId();
+        int slot = hash(id) & mask;
+        while (tasks[slot] != null) {
+            if (keys[slot] == id) {
+                break;
+            }
+            slot = (slot + 1) & mask;
+        }
+
+        if (tasks[slot] == null) {
+            size++;
+        }
+        keys[slot] = id;
+        tasks[slot] = task;
+        columns[slot] = (byte) column.ordinal();
+        positions[slot] = position;
+    }
+
+    public boolean remove(long id) {
+        int slot = slotOf(id);
+        if (slot < 0) {
+            return false;
+        }
+
+        // backward-shift deletion keeps probe chains intact without tombstones
+        int hole = slot;
+        int next = (hole + 1) & mask;
+        while (tasks[next] != null) {
+            int home = hash(keys[next]) & mask;
+            if (((next - home) & mask) >= ((next - hole) & mask)) {
+                keys[hole] = keys[next];
+                tasks[hole] = tasks[next];
+                columns[hole] = columns[next];
+                positions[hole] = positions[next];
+                hole = next;
+            }
+            next = (next + 1) & mask;
+        }
+        tasks[hole] = null;
+        size--;
+        return true;
+    }
+
+    // empty the index and size it for a new set of tasks, dropping the old table
+    public void reset(int expectedSize) {
+        allocate(capacityFor(expectedSize));
+    }
+
+    private int slotOf(long id) {
+        int slot = hash(id) & mask;
+        while (tasks[slot] != null) {
+            if (keys[slot] == id) {
+                return slot;
+            }
+            slot = (slot + 1) & mask;
+        }
+        return -1;
+    }
+
+    private void rehash(int newCapacity) {
+        long[] oldKeys = keys;
+        Task[] oldTasks = tasks;
+        byte[] oldColumns = columns;
+        int[] oldPositions = positions;
+
+        allocate(newCapacity);
+        for (int i = 0; i < oldTasks.length; i++) {
+            if (oldTasks[i] != null) {
+                int slot = hash(oldKeys[i]) & mask;
+                while (tasks[slot] != null) {
+                    slot = (slot + 1) & mask;
+                }
+                keys[slot] = oldKeys[i];
+                tasks[slot] = oldTasks[i];
+                columns[slot] = oldColumns[i];
+                positions[slot] = oldPositions[i];
+                size++;
+            }
+        }
+    }
+
+    private void allocate(int capacity) {
+        keys = new long[capacity];
+        tasks = new Task[capacity];
+        columns = new byte[capacity];
+        positions = new int[capacity];
+        mask = capacity - 1;
+        size = 0;
+    }
+
+    // smallest power of two that keeps the load factor at or under 3/4
+    private static int capacityFor(int expectedSize) {
+        long needed = Math.max(MIN_CAPACITY, (expectedSize * 4L + 2) / 3);
+        int capacity = Integer.highestOneBit((int) Math.min(needed, 1 << 30));
+        return capacity < needed ? capacity << 1 : capacity;
+    }
+
+    private static int hash(long id) {
+        long h = id * 0x9E3779B97F4A7C15L;
+        return (int) (h ^ (h >>> 32));
+    }
+}
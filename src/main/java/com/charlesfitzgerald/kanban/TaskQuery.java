@@ -0,0 +1,450 @@
+package com.charlesfitzgerald.kanban;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.function.Predicate;
+
+// A filter over the whole board, parsed once into a predicate and a comparator, plus the column,
+// id, priority and word bounds Board.query uses to pick an index instead of scanning.
+//
+//   <cond> [AND <cond>...] [ORDER BY <key> [ASC|DESC] [, <key>...]] [LIMIT <n>]
+//
+//   col=todo   col!=done   col=todo,doing
+//   id=12   prio>=2          also != < <= >
+//   title~"deploy prod*"     has these words, as in search; also desc~ and text~ (either one)
+//   title="Fix login"        the whole title, ignoring case; also desc=, and != or !~ to negate
+//
+// Keywords and field names ignore case; <key> is a SortKey name (id, title, prio). Without
+// ORDER BY, results come in board order. Throws IllegalArgumentException from parse() saying
+// what is wrong with the text.
+public class TaskQuery {
+    public static final int NO_LIMIT = -1;
+
+    private final Set<Column> columns;
+    private final long minId;
+    private final long maxId;
+    private final int minPriority;
+    private final int maxPriority;
+    // every word of the positive ~ conditions, for TextIndex.search; null when there are none
+    private final String words;
+    // all conditions except the column ones, which Board checks through its index
+    private final Predicate<Task> filter;
+    // null keeps board order
+    private final Comparator<Task> order;
+    private final int limit;
+
+    private TaskQuery(Set<Column> columns, long minId, long maxId, int minPriority, int maxPriority,
+                      String words, Predicate<Task> filter, Comparator<Task> order, int limit) {
+        this.columns = columns;
+        this.minId = minId;
+        this.maxId = maxId;
+        this.minPriority = minPriority;
+        this.maxPriority = maxPriority;
+        this.words = words;
+        this.filter = filter;
+        this.order = order;
+        this.limit = limit;
+    }
+
+    public static TaskQuery parse(String text) {
+        return new Parser(lex(text)).parse();
+    }
+
+    public Set<Column> getColumns() {
+        return columns;
+    }
+
+    public long getMinId() {
+        return minId;
+    }
+
+    public long getMaxId() {
+        return maxId;
+    }
+
+    public boolean hasIdBounds() {
+        return minId > 0 || maxId < Long.MAX_VALUE;
+    }
+
+    public int getMinPriority() {
+        return minPriority;
+    }
+
+    public int getMaxPriority() {
+        return maxPriority;
+    }
+
+    public boolean hasPriorityBounds() {
+        return minPriority > Integer.MIN_VALUE || maxPriority < Integer.MAX_VALUE;
+    }
+
+    public String getWords() {
+        return words;
+    }
+
+    public Predicate<Task> getFilter() {
+        return filter;
+    }
+
+    public Comparator<Task> getOrder() {
+        return order;
+    }
+
+    public int getLimit() {
+        return limit;
+    }
+
+    // the same query showing at most `limit` tasks
+    public TaskQuery withLimit(int limit) {
+        return new TaskQuery(columns, minId, maxId, minPriority, maxPriority, words, filter, order, limit);
+    }
+
+    // what Board.query found: up to `limit` tasks in order, how many matched in all, and how
+    public static final class Result {
+        private final List<Task> tasks;
+        private final int matched;
+        private final String plan;
+
+        public Result(List<Task> tasks, int matched, String plan) {
+            this.tasks = tasks;
+            this.matched = matched;
+            this.plan = plan;
+        }
+
+        public List<Task> getTasks() {
+            return tasks;
+        }
+
+        public int getMatched() {
+            return matched;
+        }
+
+        public String getPlan() {
+            return plan;
+        }
+    }
+
+    // a word, a quoted string, an operator or a comma
+    private static final class Token {
+        final String text;
+        final boolean quoted;
+
+        Token(String text, boolean quoted) {
+            this.text = text;
+            this.quoted = quoted;
+        }
+
+        boolean is(String keyword) {
+            return !quoted && text.equalsIgnoreCase(keyword);
+        }
+    }
+
+    private static boolean isOperatorChar(char c) {
+        return c == '=' || c == '!' || c == '<' || c == '>' || c == '~';
+    }
+
+    // Quotes work as in BatchCommand: \" and \\ inside them are a literal quote and backslash.
+    private static List<Token> lex(String text) {
+        List<Token> tokens = new ArrayList<>();
+        int i = 0;
+        while (i < text.length()) {
+            char c = text.charAt(i);
+            if (Character.isWhitespace(c)) {
+                i++;
+            } else if (c == '"') {
+                StringBuilder s = new StringBuilder();
+                i++;
+                while (i < text.length() && text.charAt(i) != '"') {
+                    char q = text.charAt(i);
+                    if (q == '\\' && i + 1 < text.length() && (text.charAt(i + 1) == '"' || text.charAt(i + 1) == '\\')) {
+                        q = text.charAt(++i);
+                    }
+                    s.append(q);
+                    i++;
+                }
+                if (i == text.length()) {
+                    throw new IllegalArgumentException("Unclosed quote");
+                }
+                tokens.add(new Token(s.toString(), true));
+                i++;
+            } else if (c == ',') {
+                tokens.add(new Token(",", false));
+                i++;
+            } else if (isOperatorChar(c)) {
+                int end = i + 1;
+                if (end < text.length() && (text.charAt(end) == '=' || (c == '!' && text.charAt(end) == '~'))) {
+                    end++;
+                }
+                tokens.add(new Token(text.substring(i, end), false));
+                i = end;
+            } else {
+                int end = i;
+                while (end < text.length() && !Character.isWhitespace(text.charAt(end))
+                        && !isOperatorChar(text.charAt(end)) && text.charAt(end) != ',' && text.charAt(end) != '"') {
+                    end++;
+                }
+                tokens.add(new Token(text.substring(i, end), false));
+                i = end;
+            }
+        }
+        return tokens;
+    }
+
+    private static final class Parser {
+        private final List<Token> tokens;
+        private int pos;
+
+        private final Set<Column> columns = EnumSet.allOf(Column.class);
+        private long minId = 0;
+        private long maxId = Long.MAX_VALUE;
+        private int minPriority = Integer.MIN_VALUE;
+        private int maxPriority = Integer.MAX_VALUE;
+        private final List<String> words = new ArrayList<>();
+        private Predicate<Task> filter;
+        private Comparator<Task> order;
+        private int limit = NO_LIMIT;
+
+        Parser(List<Token> tokens) {
+            this.tokens = tokens;
+        }
+
+        TaskQuery parse() {
+            if (tokens.isEmpty()) {
+                throw new IllegalArgumentException("Empty query");
+            }
+            if (!peekIs("order") && !peekIs("limit")) {
+                condition();
+                while (peekIs("and")) {
+                    pos++;
+                    condition();
+                }
+            }
+            if (peekIs("order")) {
+                pos++;
+                expect("by");
+                orderBy();
+            }
+            if (peekIs("limit")) {
+                pos++;
+                limit = (int) Math.min(number("LIMIT"), Integer.MAX_VALUE);
+            }
+            if (pos < tokens.size()) {
+                throw new IllegalArgumentException("Unexpected '" + tokens.get(pos).text + "'");
+            }
+
+            // the numeric bounds become one range check, ahead of the costlier conditions
+            Predicate<Task> compiled = filter;
+            if (minId > 0 || maxId < Long.MAX_VALUE) {
+                long lo = minId;
+                long hi = maxId;
+                compiled = and(t -> t.getId() >= lo && t.getId() <= hi, compiled);
+            }
+            if (minPriority > Integer.MIN_VALUE || maxPriority < Integer.MAX_VALUE) {
+                int lo = minPriority;
+                int hi = maxPriority;
+                compiled = and(t -> t.getPriority() >= lo && t.getPriority() <= hi, compiled);
+            }
+            return new TaskQuery(Collections.unmodifiableSet(columns), minId, maxId, minPriority, maxPriority,
+                    words.isEmpty() ? null : String.join(" ", words),
+                    compiled == null ? t -> true : compiled, order, limit);
+        }
+
+        private void condition() {
+            Token field = next("a field");
+            if (field.quoted) {
+                throw new IllegalArgumentException("Expected a field but found \"" + field.text + "\"");
+            }
+            String name = field.text.toLowerCase(Locale.ROOT);
+            String op = next("an operator").text;
+            switch (name) {
+                case "col", "column", "list" -> columnCondition(op);
+                case "desc", "description" -> textCondition(op, Task::getDescription);
+                case "text" -> textCondition(op, t -> t.getTitle() + " " + t.getDescription());
+                default -> {
+                    SortKey key = SortKey.fromFlag(name);
+                    if (key == null) {
+                        throw new IllegalArgumentException("Unknown field '" + field.text + "': use col, id, prio, title, desc or text");
+                    }
+                    switch (key) {
+                        case ID -> idCondition(op, number("id"));
+                        case PRIORITY -> priorityCondition(op, number("prio"));
+                        case TITLE -> textCondition(op, Task::getTitle);
+                    }
+                }
+            }
+        }
+
+        private void columnCondition(String op) {
+            if (!op.equals("=") && !op.equals("!=")) {
+                throw new IllegalArgumentException("col only takes = or !=");
+            }
+            Set<Column> named = EnumSet.noneOf(Column.class);
+            do {
+                Token t = next("a list");
+                Column col = Column.fromString(t.text);
+                if (col == null) {
+                    throw new IllegalArgumentException("Unknown list '" + t.text + "': use TODO, DOING or DONE");
+                }
+                named.add(col);
+            } while (skip(","));
+            if (op.equals("=")) {
+                columns.retainAll(named);
+            } else {
+                columns.removeAll(named);
+            }
+        }
+
+        private void idCondition(String op, long value) {
+            switch (op) {
+                case "=" -> {
+                    minId = Math.max(minId, value);
+                    maxId = Math.min(maxId, value);
+                }
+                // ids are never negative, so -1 empties the range where value -/+ 1 would wrap
+                case "<" -> maxId = Math.min(maxId, value <= 0 ? -1 : value - 1);
+                case "<=" -> maxId = Math.min(maxId, value);
+                case ">" -> {
+                    if (value == Long.MAX_VALUE) {
+                        maxId = -1;
+                    } else {
+                        minId = Math.max(minId, value + 1);
+                    }
+                }
+                case ">=" -> minId = Math.max(minId, value);
+                case "!=" -> filter = and(filter, t -> t.getId() != value);
+                default -> throw new IllegalArgumentException("id takes = != < <= > or >=");
+            }
+        }
+
+        private void priorityCondition(String op, long number) {
+            int value = (int) Math.max(Integer.MIN_VALUE + 1, Math.min(number, Integer.MAX_VALUE - 1));
+            switch (op) {
+                case "=" -> {
+                    minPriority = Math.max(minPriority, value);
+                    maxPriority = Math.min(maxPriority, value);
+                }
+                case "<" -> maxPriority = Math.min(maxPriority, value - 1);
+                case "<=" -> maxPriority = Math.min(maxPriority, value);
+                case ">" -> minPriority = Math.max(minPriority, value + 1);
+                case ">=" -> minPriority = Math.max(minPriority, value);
+                case "!=" -> filter = and(filter, t -> t.getPriority() != value);
+                default -> throw new IllegalArgumentException("prio takes = != < <= > or >=");
+            }
+        }
+
+        private void textCondition(String op, Function<Task, String> field) {
+            String value = next("a value").text;
+            switch (op) {
+                case "=" -> filter = and(filter, t -> value.equalsIgnoreCase(field.apply(t)));
+                case "!=" -> filter = and(filter, t -> !value.equalsIgnoreCase(field.apply(t)));
+                case "~" -> {
+                    filter = and(filter, hasWords(value, field));
+                    words.add(value);
+                }
+                case "!~" -> filter = and(filter, hasWords(value, field).negate());
+                default -> throw new IllegalArgumentException("title, desc and text take = != ~ or !~");
+            }
+        }
+
+        private void orderBy() {
+            do {
+                Token t = next("a sort key");
+                SortKey key = SortKey.fromFlag(t.text);
+                if (key == null) {
+                    throw new IllegalArgumentException("Unknown sort key '" + t.text + "': use id, title or prio");
+                }
+                boolean descending = false;
+                if (peekIs("desc")) {
+                    descending = true;
+                    pos++;
+                } else if (peekIs("asc")) {
+                    pos++;
+                }
+                Comparator<Task> cmp = key.comparator(descending);
+                order = order == null ? cmp : order.thenComparing(cmp);
+            } while (skip(","));
+        }
+
+        private long number(String what) {
+            Token t = next("a number");
+            try {
+                return Long.parseLong(t.text);
+            } catch (NumberFormatException e) {
+                throw new IllegalArgumentException(what + " needs a whole number, not '" + t.text + "'");
+            }
+        }
+
+        private Token next(String what) {
+            if (pos == tokens.size()) {
+                throw new IllegalArgumentException("Expected " + what + " at the end");
+            }
+            return tokens.get(pos++);
+        }
+
+        private void expect(String keyword) {
+            if (!peekIs(keyword)) {
+                throw new IllegalArgumentException("Expected " + keyword.toUpperCase(Locale.ROOT));
+            }
+            pos++;
+        }
+
+        private boolean skip(String punctuation) {
+            if (pos < tokens.size() && !tokens.get(pos).quoted && tokens.get(pos).text.equals(punctuation)) {
+                pos++;
+                return true;
+            }
+            return false;
+        }
+
+        private boolean peekIs(String keyword) {
+            return pos < tokens.size() && tokens.get(pos).is(keyword);
+        }
+    }
+
+    private static Predicate<Task> and(Predicate<Task> a, Predicate<Task> b) {
+        return a == null ? b : b == null ? a : a.and(b);
+    }
+
+    // The field contains every word of the value, matching tokens the way TextIndex does, so a
+    // task the index finds for these words passes only if the words are in this field.
+    private static Predicate<Task> hasWords(String value, Function<Task, String> field) {
+        List<String> exact = new ArrayList<>();
+        List<String> prefixes = new ArrayList<>();
+        for (String word : value.trim().split("\\s+")) {
+            boolean prefix = word.endsWith("*");
+            List<String> tokens = TextIndex.tokenize(prefix ? word.substring(0, word.length() - 1) : word);
+            for (int i = 0; i < tokens.size(); i++) {
+                (prefix && i == tokens.size() - 1 ? prefixes : exact).add(tokens.get(i));
+            }
+        }
+        if (exact.isEmpty() && prefixes.isEmpty()) {
+            throw new IllegalArgumentException("'" + value + "' has no words to match");
+        }
+
+        return t -> {
+            List<String> have = TextIndex.tokenize(field.apply(t));
+            if (!have.containsAll(exact)) {
+                return false;
+            }
+            for (String p : prefixes) {
+                boolean found = false;
+                for (String h : have) {
+                    if (h.startsWith(p)) {
+                        found = true;
+                        break;
+                    }
+                }
+                if (!found) {
+                    return false;
+                }
+            }
+            return true;
+        };
+    }
+}
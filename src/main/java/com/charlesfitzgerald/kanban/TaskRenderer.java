@@ -0,0 +1,97 @@
+package com.charlesfitzgerald.kanban;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.util.Iterator;
+import java.util.List;
+
+// Renders task lines into one reusable StringBuilder and hands them to a Writer as chars,
+// so a listing costs no format-string parsing and no per-line flush. Callers flush() once
+// when the listing is complete.
+public class TaskRenderer {
+    public static final int NO_LIMIT = Integer.MAX_VALUE;
+    private static final String NEWLINE = System.lineSeparator();
+    private static final Histogram RENDER_TIME = Metrics.latency("render.tasks");
+
+    private final Writer out;
+    private final StringBuilder line = new StringBuilder(128);
+    private char[] chars = new char[128];
+
+    public TaskRenderer(Writer out) {
+        this.out = out;
+    }
+
+    // same text as TaskViews.formatTaskLine
+    public static StringBuilder appendTaskLine(StringBuilder sb, Task t, Column col) {
+        return sb.append("[#").append(t.getId()).append("] ")
+                .append(t.getTitle())
+                .append(" (prio ").append(t.getPriority()).append(") in ")
+                .append(col.name());
+    }
+
+    public void taskLine(Task t, Column col) {
+        line.setLength(0);
+        appendTaskLine(line, t, col).append(NEWLINE);
+        writeLine();
+    }
+
+    public void text(String s) {
+        line.setLength(0);
+        line.append(s).append(NEWLINE);
+        writeLine();
+    }
+
+    // Render up to `limit` tasks after skipping the first `offset`. Returns the last task
+    // rendered, which is the cursor for the next page, or null if nothing was rendered.
+    public Task tasks(Iterable<Task> tasks, Column col, int offset, int limit) {
+        long start = Metrics.start();
+        Task last = renderTasks(tasks, col, offset, limit);
+        RENDER_TIME.recordSince(start);
+        return last;
+    }
+
+    private Task renderTasks(Iterable<Task> tasks, Column col, int offset, int limit) {
+        Task last = null;
+        if (limit <= 0) {
+            return last;
+        }
+
+        Iterator<Task> it;
+        if (tasks instanceof List<Task> list) {
+            // lists can start at the offset without walking up to it (board columns seek in O(log n))
+            it = list.listIterator(Math.min(offset, list.size()));
+        } else {
+            it = tasks.iterator();
+            for (int skipped = 0; skipped < offset && it.hasNext(); skipped++) {
+                it.next();
+            }
+        }
+        for (int printed = 0; printed < limit && it.hasNext(); printed++) {
+            last = it.next();
+            taskLine(last, col);
+        }
+        return last;
+    }
+
+    public void flush() {
+        try {
+            out.flush();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private void writeLine() {
+        int len = line.length();
+        if (chars.length < len) {
+            chars = new char[Math.max(len, chars.length * 2)];
+        }
+        line.getChars(0, len, chars, 0);
+        try {
+            out.write(chars, 0, len);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
@@ -0,0 +1,508 @@
+package com.charlesfitzgerald.kanban;
+
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.ListIterator;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+
+// Persistent list of one column's tasks in board order.
+//
+// Every task is stored under a slot number its Board hands out in increasing order, so a task
+// can be found, replaced or removed by slot in O(log n) no matter how much of the column has
+// shifted around it since. The list is a B-tree over slots, 32 wide, that also counts the tasks
+// under each child for positional access. Tasks are only appended at the end (with the newest
+// slot) but can be removed from anywhere.
+//
+// Changing a TaskVector returns a new one and leaves the old one as it was, copying only the
+// nodes on the path to the change. Nodes created under the owner token passed in are changed
+// in place instead: a Board keeps passing the same token until it hands a version out (to a
+// listing, a save or its undo history) and then switches to a new one, so that version is
+// never touched again. Taking a snapshot costs O(1), and a run of changes between snapshots
+// costs about what it would on a mutable list.
+public final class TaskVector extends AbstractList<Task> {
+    private static final int WIDTH = 32;
+    // a child this small is merged into a neighbour when the two fit in one node
+    private static final int MERGE_BELOW = WIDTH / 4;
+
+    public static final TaskVector EMPTY = new TaskVector(Node.leaf(null), 0);
+
+    private final Node root;
+    private final int size;
+
+    private TaskVector(Node root, int size) {
+        this.root = root;
+        this.size = size;
+    }
+
+    // the tasks in order, in slots firstSlot, firstSlot + 1, ...; built bottom-up in O(n)
+    public static TaskVector of(List<Task> tasks, int firstSlot, Object owner) {
+        Builder builder = new Builder(tasks.size(), owner);
+        int slot = firstSlot;
+        for (Task t : tasks) {
+            builder.add(slot++, t);
+        }
+        return builder.build();
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public Task get(int index) {
+        Objects.checkIndex(index, size);
+        Node n = root;
+        while (n.children != null) {
+            int i = 0;
+            while (index >= n.sizes[i]) {
+                index -= n.sizes[i++];
+            }
+            n = n.children[i];
+        }
+        return n.tasks[index];
+    }
+
+    // position of the task in the slot, or -1 if there is none
+    public int indexOfSlot(int slot) {
+        int rank = 0;
+        Node n = root;
+        while (n.children != null) {
+            int i = n.route(slot);
+            for (int c = 0; c < i; c++) {
+                rank += n.sizes[c];
+            }
+            n = n.children[i];
+        }
+        int i = n.find(slot);
+        return i < 0 ? -1 : rank + i;
+    }
+
+    public TaskVector append(int slot, Task task, Object owner) {
+        Node r = editable(root, owner);
+        Node overflow = appendInto(r, slot, task, owner);
+        if (overflow != null) {
+            Node top = Node.inner(owner);
+            top.push(r.keys[0], r, size);
+            top.push(slot, overflow, 1);
+            r = top;
+        }
+        return new TaskVector(r, size + 1);
+    }
+
+    public TaskVector replace(int slot, Task task, Object owner) {
+        Node r = editable(root, owner);
+        Node n = r;
+        while (n.children != null) {
+            int i = n.route(slot);
+            Node child = editable(n.children[i], owner);
+            n.children[i] = child;
+            n = child;
+        }
+        n.tasks[n.slotIndex(slot)] = task;
+        return new TaskVector(r, size);
+    }
+
+    public TaskVector remove(int slot, Object owner) {
+        if (size == 1 && root.children == null) {
+            root.slotIndex(slot);
+            return EMPTY;
+        }
+        Node r = editable(root, owner);
+        removeFrom(r, slot, owner);
+        while (r.children != null && r.len == 1) {
+            r = r.children[0];
+        }
+        return new TaskVector(r, size - 1);
+    }
+
+    // Without the tasks in the given slots, which must be ascending (board order) and all
+    // present. A few are removed one at a time; more than that and the rest of the tasks are
+    // copied into new nodes in one pass, keeping their slots.
+    public TaskVector removeAll(int[] slots, Object owner) {
+        if (slots.length == size) {
+            return EMPTY;
+        }
+        if (slots.length < size / WIDTH) {
+            TaskVector v = this;
+            for (int slot : slots) {
+                v = v.remove(slot, owner);
+            }
+            return v;
+        }
+
+        Builder builder = new Builder(size - slots.length, owner);
+        int matched = keepAllBut(root, slots, 0, builder);
+        if (matched != slots.length) {
+            throw new IllegalStateException("No task in slot " + slots[matched]);
+        }
+        return builder.build();
+    }
+
+    // adds the tasks under n to the builder, skipping slots[next..] as they come up; returns
+    // how far through slots it got
+    private static int keepAllBut(Node n, int[] slots, int next, Builder builder) {
+        if (n.children != null) {
+            for (int i = 0; i < n.len; i++) {
+                next = keepAllBut(n.children[i], slots, next, builder);
+            }
+            return next;
+        }
+        for (int i = 0; i < n.len; i++) {
+            if (next < slots.length && n.keys[i] == slots[next]) {
+                next++;
+            } else {
+                builder.add(n.keys[i], n.tasks[i]);
+            }
+        }
+        return next;
+    }
+
+    @Override
+    public ListIterator<Task> listIterator(int index) {
+        return new Cursor(index);
+    }
+
+    @Override
+    public Iterator<Task> iterator() {
+        return new Cursor(0);
+    }
+
+    // Adds to the rightmost leaf under n, which the caller has made editable. Returns a new
+    // node holding the task when n had no room for it, for the caller to add beside n.
+    private static Node appendInto(Node n, int slot, Task task, Object owner) {
+        if (n.children == null) {
+            if (n.len < WIDTH) {
+                n.keys[n.len] = slot;
+                n.tasks[n.len++] = task;
+                return null;
+            }
+            Node leaf = Node.leaf(owner);
+            leaf.keys[0] = slot;
+            leaf.tasks[0] = task;
+            leaf.len = 1;
+            return leaf;
+        }
+
+        int last = n.len - 1;
+        Node child = editable(n.children[last], owner);
+        n.children[last] = child;
+        Node overflow = appendInto(child, slot, task, owner);
+        if (overflow == null) {
+            n.sizes[last]++;
+            return null;
+        }
+        if (n.len < WIDTH) {
+            n.push(slot, overflow, 1);
+            return null;
+        }
+        Node sibling = Node.inner(owner);
+        sibling.push(slot, overflow, 1);
+        return sibling;
+    }
+
+    private static void removeFrom(Node n, int slot, Object owner) {
+        if (n.children == null) {
+            n.removeAt(n.slotIndex(slot));
+            return;
+        }
+
+        int i = n.route(slot);
+        Node child = editable(n.children[i], owner);
+        n.children[i] = child;
+        removeFrom(child, slot, owner);
+        n.sizes[i]--;
+        if (child.len == 0) {
+            n.removeAt(i);
+        } else if (child.len < MERGE_BELOW && n.len > 1) {
+            int left = i > 0 ? i - 1 : i;
+            int right = left + 1;
+            if (n.children[left].len + n.children[right].len <= WIDTH) {
+                Node merged = editable(n.children[left], owner);
+                merged.appendAll(n.children[right], n.keys[right]);
+                n.children[left] = merged;
+                n.sizes[left] += n.sizes[right];
+                n.removeAt(right);
+            }
+        }
+    }
+
+    private static Node editable(Node n, Object owner) {
+        return n.owner == owner ? n : n.copy(owner);
+    }
+
+    // Packs tasks added in slot order into full leaves, then groups WIDTH nodes under each
+    // parent until one is left.
+    private static final class Builder {
+        private final Object owner;
+        private final Node[] leaves;
+        private int count;
+        private int size;
+
+        Builder(int expectedSize, Object owner) {
+            this.owner = owner;
+            this.leaves = new Node[(expectedSize + WIDTH - 1) / WIDTH];
+        }
+
+        void add(int slot, Task task) {
+            Node leaf = count == 0 ? null : leaves[count - 1];
+            if (leaf == null || leaf.len == WIDTH) {
+                leaf = Node.leaf(owner);
+                leaves[count++] = leaf;
+            }
+            leaf.keys[leaf.len] = slot;
+            leaf.tasks[leaf.len++] = task;
+            size++;
+        }
+
+        TaskVector build() {
+            if (size == 0) {
+                return EMPTY;
+            }
+            Node[] nodes = leaves;
+            int[] counts = new int[count];
+            for (int i = 0; i < count; i++) {
+                counts[i] = nodes[i].len;
+            }
+            // parent p only overwrites nodes[p] after reading its own children, which start at p * WIDTH
+            int level = count;
+            while (level > 1) {
+                int parents = (level + WIDTH - 1) / WIDTH;
+                for (int p = 0; p < parents; p++) {
+                    Node parent = Node.inner(owner);
+                    int total = 0;
+                    for (int c = p * WIDTH; c < Math.min(level, (p + 1) * WIDTH); c++) {
+                        parent.push(nodes[c].keys[0], nodes[c], counts[c]);
+                        total += counts[c];
+                    }
+                    nodes[p] = parent;
+                    counts[p] = total;
+                }
+                level = parents;
+            }
+            return new TaskVector(nodes[0], size);
+        }
+    }
+
+    // Leaves hold slots and tasks; inner nodes hold, for each child, a slot no higher than any
+    // in it (and above every slot in the child before), the child, and its task count.
+    private static final class Node {
+        final Object owner;
+        final int[] keys = new int[WIDTH];
+        final Task[] tasks;
+        final Node[] children;
+        final int[] sizes;
+        int len;
+
+        private Node(Object owner, boolean leaf) {
+            this.owner = owner;
+            this.tasks = leaf ? new Task[WIDTH] : null;
+            this.children = leaf ? null : new Node[WIDTH];
+            this.sizes = leaf ? null : new int[WIDTH];
+        }
+
+        static Node leaf(Object owner) {
+            return new Node(owner, true);
+        }
+
+        static Node inner(Object owner) {
+            return new Node(owner, false);
+        }
+
+        Node copy(Object newOwner) {
+            Node c = new Node(newOwner, children == null);
+            System.arraycopy(keys, 0, c.keys, 0, len);
+            if (children == null) {
+                System.arraycopy(tasks, 0, c.tasks, 0, len);
+            } else {
+                System.arraycopy(children, 0, c.children, 0, len);
+                System.arraycopy(sizes, 0, c.sizes, 0, len);
+            }
+            c.len = len;
+            return c;
+        }
+
+        void push(int key, Node child, int childSize) {
+            keys[len] = key;
+            children[len] = child;
+            sizes[len++] = childSize;
+        }
+
+        // child whose slots would include this one
+        int route(int slot) {
+            int lo = 1;
+            int hi = len - 1;
+            int found = 0;
+            while (lo <= hi) {
+                int mid = (lo + hi) >>> 1;
+                if (keys[mid] <= slot) {
+                    found = mid;
+                    lo = mid + 1;
+                } else {
+                    hi = mid - 1;
+                }
+            }
+            return found;
+        }
+
+        // position of the slot in a leaf, or a negative number when it isn't there
+        int find(int slot) {
+            return Arrays.binarySearch(keys, 0, len, slot);
+        }
+
+        int slotIndex(int slot) {
+            int i = find(slot);
+            if (i < 0) {
+                throw new IllegalStateException("No task in slot " + slot);
+            }
+            return i;
+        }
+
+        void removeAt(int i) {
+            int moved = len - i - 1;
+            System.arraycopy(keys, i + 1, keys, i, moved);
+            if (children == null) {
+                System.arraycopy(tasks, i + 1, tasks, i, moved);
+                tasks[len - 1] = null;
+            } else {
+                System.arraycopy(children, i + 1, children, i, moved);
+                System.arraycopy(sizes, i + 1, sizes, i, moved);
+                children[len - 1] = null;
+            }
+            len--;
+        }
+
+        // move the entries of the node to the right onto the end of this one; `separator`
+        // bounds its first child, since its own first key may be stale
+        void appendAll(Node right, int separator) {
+            System.arraycopy(right.keys, 0, keys, len, right.len);
+            if (children == null) {
+                System.arraycopy(right.tasks, 0, tasks, len, right.len);
+            } else {
+                keys[len] = separator;
+                System.arraycopy(right.children, 0, children, len, right.len);
+                System.arraycopy(right.sizes, 0, sizes, len, right.len);
+            }
+            len += right.len;
+        }
+    }
+
+    // Walks the leaves forwards, keeping the path down to the current leaf so moving on to the
+    // next one is O(1) amortised; seeks from the root when it starts and to step back.
+    // Read-only, like the list.
+    private final class Cursor implements ListIterator<Task> {
+        private int next;
+        private Node leaf;
+        private int leafIndex;
+        // inner nodes above the leaf, and which child of each the walk is in
+        private Node[] path = new Node[8];
+        private int[] at = new int[8];
+        private int depth;
+
+        Cursor(int index) {
+            Objects.checkIndex(index, size + 1);
+            next = index;
+        }
+
+        @Override
+        public boolean hasNext() {
+            return next < size;
+        }
+
+        @Override
+        public Task next() {
+            if (next >= size) {
+                throw new NoSuchElementException();
+            }
+            if (leaf == null) {
+                seek(next);
+            } else if (leafIndex == leaf.len) {
+                nextLeaf();
+            }
+            next++;
+            return leaf.tasks[leafIndex++];
+        }
+
+        @Override
+        public boolean hasPrevious() {
+            return next > 0;
+        }
+
+        @Override
+        public Task previous() {
+            if (next <= 0) {
+                throw new NoSuchElementException();
+            }
+            seek(--next);
+            Task t = leaf.tasks[leafIndex];
+            leaf = null;
+            return t;
+        }
+
+        @Override
+        public int nextIndex() {
+            return next;
+        }
+
+        @Override
+        public int previousIndex() {
+            return next - 1;
+        }
+
+        private void seek(int index) {
+            depth = 0;
+            Node n = root;
+            while (n.children != null) {
+                int i = 0;
+                while (index >= n.sizes[i]) {
+                    index -= n.sizes[i++];
+                }
+                descend(n, i);
+                n = n.children[i];
+            }
+            leaf = n;
+            leafIndex = index;
+        }
+
+        // up to the nearest node with a child left to visit, then down its leftmost side
+        private void nextLeaf() {
+            while (at[depth - 1] == path[depth - 1].len - 1) {
+                depth--;
+            }
+            Node n = path[depth - 1].children[++at[depth - 1]];
+            while (n.children != null) {
+                descend(n, 0);
+                n = n.children[0];
+            }
+            leaf = n;
+            leafIndex = 0;
+        }
+
+        private void descend(Node n, int child) {
+            if (depth == path.length) {
+                path = Arrays.copyOf(path, depth * 2);
+                at = Arrays.copyOf(at, depth * 2);
+            }
+            path[depth] = n;
+            at[depth++] = child;
+        }
+
+        @Override
+        public void remove() {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public void set(Task task) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public void add(Task task) {
+            throw new UnsupportedOperationException();
+        }
+    }
+}
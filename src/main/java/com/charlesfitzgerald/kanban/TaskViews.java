@@ -1,16 +1,36 @@
 package com.charlesfitzgerald.kanban;
 
+import java.io.BufferedWriter;
+import java.io.OutputStreamWriter;
+import java.io.PrintStream;
+import java.nio.charset.Charset;
 import java.util.Comparator;
 import java.util.List;
 
 import static java.util.Comparator.*;
 
 public class TaskViews {
+    private static final int OUTPUT_BUFFER_CHARS = 64 * 1024;
+
+    // The print methods write to the console for the REPL. Each thread that prints gets its own
+    // renderer, so a listing from any other thread can't interleave with the REPL's in a shared
+    // buffer; a thread's renderer is replaced only if System.out is.
+    private static final ThreadLocal<ConsoleRenderer> RENDERER = new ThreadLocal<>();
+
+    private static class ConsoleRenderer {
+        final PrintStream stream;
+        final TaskRenderer renderer;
+
+        ConsoleRenderer(PrintStream stream, TaskRenderer renderer) {
+            this.stream = stream;
+            this.renderer = renderer;
+        }
+    }
+
     public TaskViews() {}
 
     public static String formatTaskLine(Task t, Column col) {
-        return String.format("[#%d] %s (prio %d) in %s",
-                t.getId(), t.getTitle(), t.getPriority(), col.name());
+        return TaskRenderer.appendTaskLine(new StringBuilder(64), t, col).toString();
     }
 
     public static String printDetailedTask(Task t, Column col) {
@@ -26,42 +46,119 @@ public class TaskViews {
     }
 
     public static void printSection(String header, List<Task> taskList, Column col) {
-        System.out.println(header);
-        printList(taskList, col);
+        TaskRenderer r = renderer();
+        r.text(header);
+        r.tasks(taskList, col, 0, TaskRenderer.NO_LIMIT);
+        r.flush();
     }
 
     public static void printSectionSorted(String header, List<Task> taskList, Column col, Comparator<Task> cmp) {
-        System.out.println(header);
-        printListSorted(taskList, col, cmp);
+        TaskRenderer r = renderer();
+        r.text(header);
+        r.tasks(taskList.stream().sorted(cmp).toList(), col, 0, TaskRenderer.NO_LIMIT);
+        r.flush();
+    }
+
+    public static void printSectionSorted(String header, Board board, Column col, SortKey key, boolean descending) {
+        TaskRenderer r = renderer();
+        r.text(header);
+        r.tasks(board.sorted(col, key, descending), col, 0, TaskRenderer.NO_LIMIT);
+        r.flush();
     }
 
     public static void printList(List<Task> taskList, Column col) {
-            for (Task t : taskList) {
-                System.out.println(formatTaskLine(t, col));
-            }
+        TaskRenderer r = renderer();
+        r.tasks(taskList, col, 0, TaskRenderer.NO_LIMIT);
+        r.flush();
     }
 
     public static void printListSorted(List<Task> taskList, Column col, Comparator<Task> cmp) {
-        taskList.stream().sorted(cmp)
-                .forEach(task -> System.out.println(formatTaskLine(task, col)));
+        TaskRenderer r = renderer();
+        r.tasks(taskList.stream().sorted(cmp).toList(), col, 0, TaskRenderer.NO_LIMIT);
+        r.flush();
+    }
+
+    // walks the board's maintained sorted view instead of sorting the column
+    public static void printListSorted(Board board, Column col, SortKey key, boolean descending) {
+        printPage(board, col, key, descending, 0, TaskRenderer.NO_LIMIT);
+    }
+
+    // One page of a column: board order when key is null, otherwise the sorted view.
+    // offset/limit count tasks within the column. Returns the last task printed, or null.
+    public static Task printPage(Board board, Column col, SortKey key, boolean descending, int offset, int limit) {
+        TaskRenderer r = renderer();
+        Task last = r.tasks(key == null ? board.get(col) : board.sorted(col, key, descending), col, offset, limit);
+        r.flush();
+        return last;
+    }
+
+    // every column under its header, each paged with the same offset/limit
+    public static void printAllPages(Board board, SortKey key, boolean descending, int offset, int limit) {
+        TaskRenderer r = renderer();
+        for (Column col : Column.values()) {
+            r.text("[" + col.name() + "]");
+            r.tasks(key == null ? board.get(col) : board.sorted(col, key, descending), col, offset, limit);
+            r.text("");
+        }
+        r.flush();
+    }
+
+    // One page that continues after task `afterId` in the listing order. Returns the last task
+    // printed (the next cursor), or null if the page was empty.
+    public static Task printPageAfter(Board board, Column col, SortKey key, boolean descending, long afterId, int limit) {
+        Iterable<Task> rest = board.after(col, key, descending, afterId);
+        if (rest == null) {
+            return null;
+        }
+        TaskRenderer r = renderer();
+        Task last = r.tasks(rest, col, 0, limit);
+        r.flush();
+        return last;
+    }
+
+    // the k first tasks of a column in key order, picked without sorting the whole column
+    public static Task printTop(Board board, Column col, SortKey key, boolean descending, int k) {
+        TaskRenderer r = renderer();
+        Task last = r.tasks(board.top(col, key, descending, k), col, 0, k);
+        r.flush();
+        return last;
+    }
+
+    public static void printAllTop(Board board, SortKey key, boolean descending, int k) {
+        TaskRenderer r = renderer();
+        for (Column col : Column.values()) {
+            r.text("[" + col.name() + "]");
+            r.tasks(board.top(col, key, descending, k), col, 0, k);
+            r.text("");
+        }
+        r.flush();
+    }
+
+    // tasks from anywhere on the board, in the order given, each shown with its column
+    public static void printTasks(Board board, List<Task> tasks) {
+        TaskRenderer r = renderer();
+        for (Task t : tasks) {
+            r.taskLine(t, board.getCol(t.getId()));
+        }
+        r.flush();
     }
 
     public static void printAll(Board board) {
-        printSection("[TODO]", board.getTodo(), Column.TODO);
-        System.out.println();
-        printSection("[DOING]", board.getDoing(), Column.DOING);
-        System.out.println();
-        printSection("[DONE]", board.getDone(), Column.DONE);
-        System.out.println();
+        printAllPages(board, null, false, 0, TaskRenderer.NO_LIMIT);
     }
 
     public static void printAllSorted(Board board, Comparator<Task> cmp) {
-        printSectionSorted("[TODO]", board.getTodo(), Column.TODO, cmp);
-        System.out.println();
-        printSectionSorted("[DOING]", board.getDoing(), Column.DOING, cmp);
-        System.out.println();
-        printSectionSorted("[DONE]", board.getDone(), Column.DONE, cmp);
-        System.out.println();
+        TaskRenderer r = renderer();
+        for (Column col : Column.values()) {
+            r.text("[" + col.name() + "]");
+            r.tasks(board.get(col).stream().sorted(cmp).toList(), col, 0, TaskRenderer.NO_LIMIT);
+            r.text("");
+        }
+        r.flush();
+    }
+
+    public static void printAllSorted(Board board, SortKey key, boolean descending) {
+        printAllPages(board, key, descending, 0, TaskRenderer.NO_LIMIT);
     }
 
     public static Comparator<Task> byId() {
@@ -69,10 +166,35 @@ public class TaskViews {
     }
 
     public static Comparator<Task> byTitle() {
-        return comparing(Task::getTitle, String.CASE_INSENSITIVE_ORDER).thenComparingLong(Task::getId);
+        return SortKey.TITLE.comparator();
     }
 
     public static Comparator<Task> byPriority() {
         return comparingInt(Task::getPriority).thenComparingLong(Task::getId);
     }
+
+    private static TaskRenderer renderer() {
+        PrintStream current = System.out;
+        ConsoleRenderer console = RENDERER.get();
+        if (console == null || console.stream != current) {
+            TaskRenderer renderer = new TaskRenderer(new BufferedWriter(new OutputStreamWriter(current, stdoutCharset()), OUTPUT_BUFFER_CHARS));
+            console = new ConsoleRenderer(current, renderer);
+            RENDERER.set(console);
+        }
+        return console.renderer;
+    }
+
+    // the charset the JDK picked for System.out: stdout.encoding since JDK 19, before that
+    // sun.stdout.encoding, which is only set when stdout is a console
+    private static Charset stdoutCharset() {
+        String name = System.getProperty("stdout.encoding");
+        if (name == null) {
+            name = System.getProperty("sun.stdout.encoding");
+        }
+        try {
+            return name != null ? Charset.forName(name) : Charset.defaultCharset();
+        } catch (IllegalArgumentException e) {
+            return Charset.defaultCharset();
+        }
+    }
 }
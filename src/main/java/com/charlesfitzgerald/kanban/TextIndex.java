@@ -0,0 +1,223 @@
+package com.charlesfitzgerald.kanban;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.SortedMap;
+import java.util.TreeMap;
+
+// Inverted index over task titles and descriptions. Each token maps to a sorted array of the
+// ids containing it, so a query only touches the postings of the tokens it names.
+public class TextIndex {
+    // a Postings object, without its array
+    private static final long POSTINGS_BYTES = 24;
+
+    private final TreeMap<String, Postings> terms = new TreeMap<>();
+
+    // sorted, duplicate-free list of ids backed by a primitive array
+    private static class Postings {
+        private long[] ids = new long[2];
+        private int size;
+
+        void add(long id) {
+            // ids are handed out in increasing order, so this is nearly always an append
+            if (size == 0 || ids[size - 1] < id) {
+                ensureCapacity();
+                ids[size++] = id;
+                return;
+            }
+            int pos = Arrays.binarySearch(ids, 0, size, id);
+            if (pos >= 0) {
+                return;
+            }
+            pos = -pos - 1;
+            ensureCapacity();
+            System.arraycopy(ids, pos, ids, pos + 1, size - pos);
+            ids[pos] = id;
+            size++;
+        }
+
+        void remove(long id) {
+            int pos = Arrays.binarySearch(ids, 0, size, id);
+            if (pos >= 0) {
+                System.arraycopy(ids, pos + 1, ids, pos, size - pos - 1);
+                size--;
+            }
+        }
+
+        // unsorted append for bulk builds; sortAndDedupe() must run before the list is used
+        void append(long id) {
+            ensureCapacity();
+            ids[size++] = id;
+        }
+
+        void sortAndDedupe() {
+            Arrays.sort(ids, 0, size);
+            int n = 0;
+            for (int i = 0; i < size; i++) {
+                if (n == 0 || ids[i] != ids[n - 1]) {
+                    ids[n++] = ids[i];
+                }
+            }
+            size = n;
+        }
+
+        boolean contains(long id) {
+            return Arrays.binarySearch(ids, 0, size, id) >= 0;
+        }
+
+        private void ensureCapacity() {
+            if (size == ids.length) {
+                ids = Arrays.copyOf(ids, size * 2);
+            }
+        }
+    }
+
+    // Index whole columns at once. Ids go into the postings in whatever order the columns hold
+    // them and each list is sorted once at the end, instead of inserting every id in place.
+    public static TextIndex build(List<? extends Iterable<Task>> columns) {
+        TextIndex index = new TextIndex();
+        for (Iterable<Task> column : columns) {
+            for (Task t : column) {
+                for (String token : tokensOf(t)) {
+                    index.terms.computeIfAbsent(token, k -> new Postings()).append(t.getId());
+                }
+            }
+        }
+        for (Postings p : index.terms.values()) {
+            p.sortAndDedupe();
+        }
+        return index;
+    }
+
+    // rough heap footprint: per term its tree entry, the term string and its postings array
+    public long estimateBytes() {
+        long bytes = HeapEstimate.TREE_BYTES;
+        for (Map.Entry<String, Postings> entry : terms.entrySet()) {
+            bytes += HeapEstimate.TREE_ENTRY_BYTES + HeapEstimate.string(entry.getKey())
+                    + POSTINGS_BYTES + HeapEstimate.array(entry.getValue().ids.length, Long.BYTES);
+        }
+        return bytes;
+    }
+
+    public void add(Task t) {
+        for (String token : tokensOf(t)) {
+            terms.computeIfAbsent(token, k -> new Postings()).add(t.getId());
+        }
+    }
+
+    // must be called before the task's title or description changes
+    public void remove(Task t) {
+        for (String token : tokensOf(t)) {
+            Postings p = terms.get(token);
+            if (p != null) {
+                p.remove(t.getId());
+                if (p.size == 0) {
+                    terms.remove(token);
+                }
+            }
+        }
+    }
+
+    // Ids (ascending) of tasks containing every query word. A word ending in '*' matches any
+    // token starting with it, e.g. "deploy* prod".
+    public long[] search(String query) {
+        List<Postings> matches = new ArrayList<>();
+        for (String word : query.trim().split("\\s+")) {
+            boolean prefix = word.endsWith("*");
+            List<String> tokens = tokenize(prefix ? word.substring(0, word.length() - 1) : word);
+            for (int i = 0; i < tokens.size(); i++) {
+                boolean isPrefix = prefix && i == tokens.size() - 1;
+                Postings p = isPrefix ? prefixMatches(tokens.get(i)) : terms.get(tokens.get(i));
+                if (p == null || p.size == 0) {
+                    return new long[0];
+                }
+                matches.add(p);
+            }
+        }
+
+        if (matches.isEmpty()) {
+            return new long[0];
+        }
+        return intersect(matches);
+    }
+
+    private Postings prefixMatches(String prefix) {
+        SortedMap<String, Postings> range = terms.subMap(prefix, prefix + Character.MAX_VALUE);
+        if (range.size() <= 1) {
+            return range.isEmpty() ? null : range.values().iterator().next();
+        }
+
+        int total = 0;
+        for (Postings p : range.values()) {
+            total += p.size;
+        }
+        long[] all = new long[total];
+        int n = 0;
+        for (Postings p : range.values()) {
+            System.arraycopy(p.ids, 0, all, n, p.size);
+            n += p.size;
+        }
+        Arrays.sort(all);
+
+        // a task can contain several tokens with the same prefix
+        Postings union = new Postings();
+        union.ids = all;
+        for (int i = 0; i < all.length; i++) {
+            if (i == 0 || all[i] != all[i - 1]) {
+                all[union.size++] = all[i];
+            }
+        }
+        return union;
+    }
+
+    // walk the shortest list and probe the others, so cost follows the smallest match
+    private static long[] intersect(List<Postings> lists) {
+        lists.sort(Comparator.comparingInt(p -> p.size));
+        Postings smallest = lists.get(0);
+        long[] result = new long[smallest.size];
+        int n = 0;
+        for (int i = 0; i < smallest.size; i++) {
+            long id = smallest.ids[i];
+            boolean inAll = true;
+            for (int l = 1; l < lists.size() && inAll; l++) {
+                inAll = lists.get(l).contains(id);
+            }
+            if (inAll) {
+                result[n++] = id;
+            }
+        }
+        return Arrays.copyOf(result, n);
+    }
+
+    private static Set<String> tokensOf(Task t) {
+        Set<String> tokens = new HashSet<>(tokenize(t.getTitle()));
+        tokens.addAll(tokenize(t.getDescription()));
+        return tokens;
+    }
+
+    // lower-cased runs of letters and digits
+    public static List<String> tokenize(String text) {
+        List<String> tokens = new ArrayList<>();
+        if (text == null) {
+            return tokens;
+        }
+
+        int start = -1;
+        for (int i = 0; i <= text.length(); i++) {
+            boolean wordChar = i < text.length() && Character.isLetterOrDigit(text.charAt(i));
+            if (wordChar && start < 0) {
+                start = i;
+            } else if (!wordChar && start >= 0) {
+                tokens.add(text.substring(start, i).toLowerCase(Locale.ROOT));
+                start = -1;
+            }
+        }
+        return tokens;
+    }
+}
@@ -0,0 +1,46 @@
+package com.charlesfitzgerald.kanban;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+// Input stream that adds up the time spent blocked in read(), so the time a REPL command
+// spends waiting for the user to type at its prompts can be left out of its latency.
+// Only counts while stats are on; only meant to be read from one thread.
+public class TimedInputStream extends FilterInputStream {
+    private long waitedNanos;
+
+    public TimedInputStream(InputStream in) {
+        super(in);
+    }
+
+    public long getWaitedNanos() {
+        return waitedNanos;
+    }
+
+    @Override
+    public int read() throws IOException {
+        long start = Metrics.start();
+        try {
+            return super.read();
+        } finally {
+            addWait(start);
+        }
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+        long start = Metrics.start();
+        try {
+            return super.read(b, off, len);
+        } finally {
+            addWait(start);
+        }
+    }
+
+    private void addWait(long start) {
+        if (start != 0) {
+            waitedNanos += System.nanoTime() - start;
+        }
+    }
+}